@@ -7,6 +7,8 @@ public class APIConfig {
 
     private static String APILogFile = "APILog.log";
 
+    private static volatile EndpointProvider endpoints = EndpointProvider.google();
+
 
     /**
      * returns the api key from the system environment
@@ -19,4 +21,19 @@ public class APIConfig {
     public static String getAPILogFile(){
         return APILogFile;
     }
+
+    /**
+     * returns where API requests are sent, the live Google APIs unless something else was set
+     */
+    public static EndpointProvider getEndpoints(){
+        return endpoints;
+    }
+
+    /**
+     * sends all API requests somewhere else, e.g. a local MockMapsServer for offline load tests
+     * @param provider the endpoints to use, or null to go back to the live Google APIs
+     */
+    public static void setEndpoints(EndpointProvider provider){
+        endpoints = provider != null ? provider : EndpointProvider.google();
+    }
 }
@@ -0,0 +1,37 @@
+package group7.capstone.APIController;
+
+import okhttp3.Call;
+
+/**
+ * Cancellation handle for a single Google API request.
+ *
+ * The caller creates one and passes it to GoogleMapsAPIController; the controller binds
+ * the underlying OkHttp Call to it. Cancelling the handle cancels the HTTP call if it is
+ * already running, stops it from starting if it isn't, and tells the controller to drop
+ * the response instead of returning it.
+ */
+public class ApiCall {
+
+    private volatile Call call;
+    private volatile boolean cancelled = false;
+
+    /** Attaches the OkHttp call. If we were cancelled first, the call is cancelled right away. */
+    void bind(Call call) {
+        this.call = call;
+        if (cancelled) {
+            call.cancel();
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        Call c = call;
+        if (c != null) {
+            c.cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
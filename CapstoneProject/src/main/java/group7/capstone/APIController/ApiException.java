@@ -0,0 +1,34 @@
+package group7.capstone.APIController;
+
+/**
+ * A Google API request that failed after any retries.
+ *
+ * Unchecked, like the RuntimeException the controller used to throw, so existing
+ * callers that catch Exception keep working. The status code is -1 when no HTTP
+ * response was received (timeout, connection failure, open circuit).
+ */
+public class ApiException extends RuntimeException {
+
+    private final IoExecutor.Endpoint endpoint;
+    private final int statusCode;
+    private final boolean retryable;
+
+    public ApiException(IoExecutor.Endpoint endpoint, int statusCode, boolean retryable, String message, Throwable cause) {
+        super(endpoint + ": " + message, cause);
+        this.endpoint = endpoint;
+        this.statusCode = statusCode;
+        this.retryable = retryable;
+    }
+
+    /**
+     * 429 and 5xx are worth retrying; other 4xx (bad key, bad request) will fail the same way again.
+     */
+    static ApiException forStatus(IoExecutor.Endpoint endpoint, int statusCode, String message) {
+        boolean retryable = statusCode == 429 || statusCode >= 500;
+        return new ApiException(endpoint, statusCode, retryable, "HTTP " + statusCode + " " + message, null);
+    }
+
+    public IoExecutor.Endpoint getEndpoint() { return endpoint; }
+    public int getStatusCode() { return statusCode; }
+    public boolean isRetryable() { return retryable; }
+}
@@ -0,0 +1,93 @@
+package group7.capstone.APIController;
+
+/**
+ * Stops calling an endpoint that keeps failing, so a Google outage costs one fast
+ * failure per request instead of a full set of timed-out retries.
+ *
+ * CLOSED: calls go through; after failureThreshold consecutive failures it opens.
+ * OPEN: calls are refused until openMs has passed.
+ * HALF_OPEN: a single trial call is let through; success closes the circuit, failure
+ * opens it again for another openMs.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private int failureThreshold = 5;
+    private long openMs = 10_000;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAtNanos;
+    private boolean trialInFlight = false;
+    private long rejected = 0;
+
+    public CircuitBreaker() {
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMs) {
+        setFailureThreshold(failureThreshold);
+        setOpenMs(openMs);
+    }
+
+    /** Returns true if a call may be made now. A true in HALF_OPEN reserves the single trial call. */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openMs * 1_000_000L) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (!trialInFlight) {
+                    trialInFlight = true;
+                    return true;
+                }
+                rejected++;
+                return false;
+            default:
+                rejected++;
+                return false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    /** Releases a HALF_OPEN trial that ended without telling us anything (e.g. cancelled). */
+    public synchronized void recordIgnored() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getRejectedCalls() {
+        return rejected;
+    }
+
+    public synchronized void setFailureThreshold(int failureThreshold) {
+        if (failureThreshold < 1) throw new IllegalArgumentException("failureThreshold must be >= 1");
+        this.failureThreshold = failureThreshold;
+    }
+
+    public synchronized void setOpenMs(long openMs) {
+        if (openMs < 0) throw new IllegalArgumentException("openMs must be >= 0");
+        this.openMs = openMs;
+    }
+}
@@ -0,0 +1,9 @@
+package group7.capstone.APIController;
+
+/** Thrown without contacting the API while the endpoint's circuit breaker is open. */
+public class CircuitOpenException extends ApiException {
+
+    public CircuitOpenException(IoExecutor.Endpoint endpoint) {
+        super(endpoint, -1, false, "circuit open, not calling the API", null);
+    }
+}
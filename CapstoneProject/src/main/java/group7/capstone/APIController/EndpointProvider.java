@@ -0,0 +1,55 @@
+package group7.capstone.APIController;
+
+/**
+ * Where GoogleMapsAPIController sends its requests.
+ *
+ * The default points at the live Google APIs configured in APIConfig. Tests and
+ * benchmarks can point the whole app at a local server (see MockMapsServer) with
+ * APIConfig.setEndpoints, without burning API quota.
+ */
+public interface EndpointProvider {
+
+    /** Street View base URL, including the fixed size/fov query parameters. */
+    String streetViewUrl();
+
+    String snapToRoadsUrl();
+
+    /** Static map base URL, including the fixed zoom/size query parameters. */
+    String staticMapUrl();
+
+    String apiKey();
+
+    /** The live Google endpoints. Reads APIConfig on every call so edits to it still apply. */
+    static EndpointProvider google() {
+        return new EndpointProvider() {
+            @Override public String streetViewUrl() { return APIConfig.BASE_URL_STREETVIEW; }
+            @Override public String snapToRoadsUrl() { return APIConfig.BASE_URL_SNAPTOROAD; }
+            @Override public String staticMapUrl() { return APIConfig.Base_URL_MAP; }
+            @Override public String apiKey() { return APIConfig.getAPIKey(); }
+        };
+    }
+
+    /**
+     * The same paths and query parameters as the Google APIs, served from another host.
+     * They are taken from the APIConfig URLs on every call, so only the scheme and host
+     * differ from what the live app sends.
+     *
+     * @param baseUrl scheme, host and port, e.g. "http://localhost:8089"
+     */
+    static EndpointProvider local(String baseUrl) {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        return new EndpointProvider() {
+            @Override public String streetViewUrl() { return onHost(base, APIConfig.BASE_URL_STREETVIEW); }
+            @Override public String snapToRoadsUrl() { return onHost(base, APIConfig.BASE_URL_SNAPTOROAD); }
+            @Override public String staticMapUrl() { return onHost(base, APIConfig.Base_URL_MAP); }
+            @Override public String apiKey() { return "local"; }
+        };
+    }
+
+    // url with its scheme and host replaced by base, keeping the path and query
+    private static String onHost(String base, String url) {
+        int hostStart = url.indexOf("://");
+        int pathStart = hostStart < 0 ? 0 : url.indexOf('/', hostStart + 3);
+        return pathStart < 0 ? base : base + url.substring(pathStart);
+    }
+}
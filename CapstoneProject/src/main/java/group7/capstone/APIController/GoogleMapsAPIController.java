@@ -10,6 +10,7 @@ import okhttp3.*;
 import javax.imageio.ImageIO;
 import com.opencsv.CSVWriter;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -19,6 +20,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
 
@@ -30,9 +33,15 @@ public class GoogleMapsAPIController {
 
     Optional <TechnicalSubsystemController> techController;
 
+    // one breaker per endpoint, so a Street View outage doesn't stop road requests
+    private final Map<IoExecutor.Endpoint, CircuitBreaker> breakers = new EnumMap<>(IoExecutor.Endpoint.class);
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
+    private final AtomicLong retries = new AtomicLong();
+
 
     public GoogleMapsAPIController() {
-        this.client = new OkHttpClient();
+        this.client = newClient();
+        initBreakers();
         this.techController = Optional.empty();
         try {
             FileHandler fh = new FileHandler(APIConfig.getAPILogFile()); // Log to a file named "mylog.log"
@@ -43,7 +52,8 @@ public class GoogleMapsAPIController {
     }
 
     public GoogleMapsAPIController(TechnicalSubsystemController tech) {
-        this.client = new OkHttpClient();
+        this.client = newClient();
+        initBreakers();
         try {
             FileHandler fh = new FileHandler(APIConfig.getAPILogFile()); // Log to a file named "mylog.log"
             logger.addHandler(fh);
@@ -53,6 +63,38 @@ public class GoogleMapsAPIController {
         this.techController = Optional.ofNullable(tech);
     }
 
+    // without timeouts a stalled connection would hold an endpoint slot forever
+    private static OkHttpClient newClient() {
+        return new OkHttpClient.Builder()
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(10, TimeUnit.SECONDS)
+                .callTimeout(20, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private void initBreakers() {
+        for (IoExecutor.Endpoint endpoint : IoExecutor.Endpoint.values()) {
+            breakers.put(endpoint, new CircuitBreaker());
+        }
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy != null ? retryPolicy : RetryPolicy.none();
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public CircuitBreaker getCircuitBreaker(IoExecutor.Endpoint endpoint) {
+        return breakers.get(endpoint);
+    }
+
+    /** Total number of retries made after failed attempts, across all endpoints. */
+    public long getRetries() {
+        return retries.get();
+    }
+
     public void setTechController(Optional<TechnicalSubsystemController> techController) {
         this.techController = techController;
     }
@@ -65,21 +107,27 @@ public class GoogleMapsAPIController {
      * @throws IOException
      */
     public BufferedImage GetMapImage(double lat, double lon) throws IOException {
+        return decodeImage(fetchMapBytes(lat, lon, null));
+    }
+
+    /**
+     * returns the raw (still encoded) static map centered on the car
+     *
+     * @param lat latitude of the simulated car
+     * @param lon longitude of the simulated car
+     * @param handle optional cancellation handle, may be null
+     * @return the encoded image bytes, or null if the request was cancelled
+     * @throws IOException
+     */
+    public byte[] fetchMapBytes(double lat, double lon, ApiCall handle) throws IOException {
         logger.info("requesting map from: lat=" + lat + ", lon=" + lon);
-        String url = APIConfig.Base_URL_MAP + "&markers=" + lat + ", " + lon + "&key=" + APIConfig.getAPIKey();
-        Request request = new Request.Builder()
-                .url(url)
-                .build();
-        try (Response response = client.newCall(request).execute()) {
-            assert response.body() != null;
+        EndpointProvider endpoints = APIConfig.getEndpoints();
+        String url = endpoints.staticMapUrl() + "&markers=" + lat + ", " + lon + "&key=" + endpoints.apiKey();
+        byte[] bytes = fetchBytes(IoExecutor.Endpoint.STATIC_MAP, url, handle);
+        if (bytes != null) {
             logger.info("result returned is probably map");
-
-            return ImageIO.read(response.body().byteStream());
-
-        } catch (IOException e) {
-            logger.warning("google api call failed");
-            throw new RuntimeException(e);
         }
+        return bytes;
     }
 
     /**
@@ -92,24 +140,129 @@ public class GoogleMapsAPIController {
      * @throws IOException
      */
     public StreetViewImage GetStreetViewImage(double lat, double lon, int head) throws IOException {
-        logger.info("requesting image from: lat=" + lat + ", lon=" + lon + ", heading=" + head);
-        String url = APIConfig.BASE_URL_STREETVIEW + "&heading=" + head + "&location=" + lat + ", " + lon + "&key=" + APIConfig.getAPIKey();
+        return new StreetViewImage(decodeImage(fetchStreetViewBytes(lat, lon, head, null)), lat, lon, head);
+    }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .build();
-        try (Response response = client.newCall(request).execute()) {
-            assert response.body() != null;
+    /**
+     * returns the raw (still encoded) street view image, so callers can drop stale
+     * results before paying for the decode
+     *
+     * @param lat the latitude of the simulated car
+     * @param lon the longitude of the simulated car
+     * @param head the heading in degrees from north
+     * @param handle optional cancellation handle, may be null
+     * @return the encoded image bytes, or null if the request was cancelled
+     * @throws IOException
+     */
+    public byte[] fetchStreetViewBytes(double lat, double lon, int head, ApiCall handle) throws IOException {
+        logger.info("requesting image from: lat=" + lat + ", lon=" + lon + ", heading=" + head);
+        EndpointProvider endpoints = APIConfig.getEndpoints();
+        String url = endpoints.streetViewUrl() + "&heading=" + head + "&location=" + lat + ", " + lon + "&key=" + endpoints.apiKey();
+        byte[] bytes = fetchBytes(IoExecutor.Endpoint.STREET_VIEW, url, handle);
+        if (bytes != null) {
             logger.info("result returned is probably image");
+        }
+        return bytes;
+    }
 
-            return new StreetViewImage(ImageIO.read(response.body().byteStream()), lat, lon, head);
+    private byte[] fetchBytes(IoExecutor.Endpoint endpoint, String url, ApiCall handle) {
+        return withRetry(endpoint, handle, () -> {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .build();
+            Call call = client.newCall(request);
+            if (handle != null) {
+                handle.bind(call);
+            }
 
-        } catch (IOException e) {
-            logger.warning("google api call failed");
-            throw new RuntimeException(e);
+            try (Response response = call.execute()) {
+                ResponseBody body = checkResponse(endpoint, response);
+                byte[] bytes = body.bytes();
+                return (handle != null && handle.isCancelled()) ? null : bytes;
+            }
+        });
+    }
+
+    // non-2xx responses used to be read as if they were data
+    private static ResponseBody checkResponse(IoExecutor.Endpoint endpoint, Response response) {
+        if (!response.isSuccessful()) {
+            throw ApiException.forStatus(endpoint, response.code(), response.message());
+        }
+        ResponseBody body = response.body();
+        if (body == null) {
+            throw new ApiException(endpoint, response.code(), true, "empty response body", null);
+        }
+        return body;
+    }
+
+    private interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Runs a request through the endpoint's circuit breaker, retrying retryable failures
+     * with jittered exponential backoff.
+     *
+     * @return the result, or null if the handle was cancelled
+     * @throws ApiException once the retries are used up, for a non-retryable response,
+     *                      or straight away if the circuit is open
+     */
+    private <T> T withRetry(IoExecutor.Endpoint endpoint, ApiCall handle, Attempt<T> attempt) {
+        CircuitBreaker breaker = breakers.get(endpoint);
+        RetryPolicy policy = retryPolicy;
+
+        for (int attemptNo = 1; ; attemptNo++) {
+            if (handle != null && handle.isCancelled()) return null;
+            if (!breaker.allowRequest()) {
+                logger.warning(endpoint + " circuit open, skipping call");
+                throw new CircuitOpenException(endpoint);
+            }
+
+            ApiException failure;
+            try {
+                T result = attempt.run();
+                breaker.recordSuccess();
+                return result;
+            } catch (ApiException e) {
+                failure = e;
+            } catch (IOException e) {
+                failure = new ApiException(endpoint, -1, true, String.valueOf(e.getMessage()), e);
+            }
+
+            if (handle != null && handle.isCancelled()) {
+                breaker.recordIgnored();
+                logger.info("request cancelled");
+                return null;
+            }
+            // the service answered, so a 4xx says nothing about its health
+            if (failure.isRetryable()) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();
+            }
+
+            if (!failure.isRetryable() || attemptNo >= policy.getMaxAttempts()) {
+                logger.warning("google api call failed: " + failure.getMessage());
+                throw failure;
+            }
+
+            long delay = policy.backoffMs(attemptNo);
+            retries.incrementAndGet();
+            logger.info(endpoint + " attempt " + attemptNo + " failed, retrying in " + delay + " ms");
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw failure;
+            }
         }
     }
 
+    public static BufferedImage decodeImage(byte[] bytes) throws IOException {
+        if (bytes == null) return null;
+        return ImageIO.read(new ByteArrayInputStream(bytes));
+    }
+
     /**
      * calculates the coordinates of the point a set distance ahead of the car
      *
@@ -151,48 +304,60 @@ public class GoogleMapsAPIController {
      * @param lon the longitude coordinate of the car
      * @param head the heading of the car (0 and 360  are north)
      * @return an APIResponseDomain object containing a list of coordinates that form the road
+     * @throws ApiException if the request still fails after retries, or the circuit is open
      */
     public APIResponseDomain getStreet(double lat, double lon, int head) {
         logger.info("finding closest road to: lat=" + lat + ", lon=" + lon);
 
         //Block 1
-        String url = APIConfig.BASE_URL_SNAPTOROAD + "?interpolate=true&path=" + getPath(lat, lon, head, 10) + "&key=" + APIConfig.getAPIKey();
-        Request request = new Request.Builder()
-                .url(url)
-                .build();
+        EndpointProvider endpoints = APIConfig.getEndpoints();
+        String url = endpoints.snapToRoadsUrl() + "?interpolate=true&path=" + getPath(lat, lon, head, 10) + "&key=" + endpoints.apiKey();
+
+        //Block 2
+        APIResponseDomain responseDomain = withRetry(IoExecutor.Endpoint.SNAP_TO_ROADS, null, () -> {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .build();
+
+            try (Response response = client.newCall(request).execute()) {
+                ResponseBody body = checkResponse(IoExecutor.Endpoint.SNAP_TO_ROADS, response);
+                logger.info("result returned properly");
+                return parseSnappedPoints(body);
+            }
+        });
+        logger.info("exiting getStreet function");
+        return responseDomain;
+    }
 
+    private APIResponseDomain parseSnappedPoints(ResponseBody body) {
         ArrayList<APIResponseDomain.SnappedPoint> segments = new ArrayList<>();
         APIResponseDomain responseDomain = new APIResponseDomain();
 
-        //Block 2
-        try (Response response = client.newCall(request).execute()) {
-            assert response.body() != null;
-            logger.info("result returned properly");
-            Map jsonResponseObject = new Gson().fromJson(response.body().charStream(), Map.class);
-            ArrayList<Map> points = (ArrayList<Map>) jsonResponseObject.get("snappedPoints");
-            Map<String, Object> location;
-
-            //Block 3
-            for (Map<String,Object> p: points) {
-                segments.add(new APIResponseDomain.SnappedPoint());
-                APIResponseDomain.SnappedPoint s = segments.get(segments.size() - 1);
-                s.setLocation(new APIResponseDomain.LatLng());
-                location = (Map<String, Object>) p.get("location");
-                s.getLocation().setLatitude((Double) location.get("latitude"));
-                s.getLocation().setLongitude((Double) location.get("longitude"));
-                s.setPlaceId((String) p.get("placeId"));
-                if(p.containsKey("originalIndex")){
-                    double index = (double) p.get("originalIndex");
-                    s.setOriginalIndex((int) index);
-                }
-            }
-            responseDomain.setSnappedPoints(segments);
+        Map jsonResponseObject = new Gson().fromJson(body.charStream(), Map.class);
+        // no snappedPoints means no road near the path, not a failure
+        ArrayList<Map> points = jsonResponseObject != null
+                ? (ArrayList<Map>) jsonResponseObject.get("snappedPoints")
+                : null;
+        if (points == null) {
+            points = new ArrayList<>();
+        }
+        Map<String, Object> location;
 
-        } catch (IOException e) {
-            logger.warning("google api call failed");
-            throw new RuntimeException(e);
+        //Block 3
+        for (Map<String,Object> p: points) {
+            segments.add(new APIResponseDomain.SnappedPoint());
+            APIResponseDomain.SnappedPoint s = segments.get(segments.size() - 1);
+            s.setLocation(new APIResponseDomain.LatLng());
+            location = (Map<String, Object>) p.get("location");
+            s.getLocation().setLatitude((Double) location.get("latitude"));
+            s.getLocation().setLongitude((Double) location.get("longitude"));
+            s.setPlaceId((String) p.get("placeId"));
+            if(p.containsKey("originalIndex")){
+                double index = (double) p.get("originalIndex");
+                s.setOriginalIndex((int) index);
+            }
         }
-        logger.info("exiting getStreet function");
+        responseDomain.setSnappedPoints(segments);
         return responseDomain;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,453 @@
+package group7.capstone.APIController;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Shared execution layer for network-bound work (Google API calls and image fetches).
+ *
+ * On JDK 21+ every task runs on its own virtual thread, so a blocked OkHttp call costs
+ * almost nothing and dozens of prefetches can be in flight. On older JDKs it falls back
+ * to a cached pool of daemon platform threads.
+ *
+ * Each endpoint has its own concurrency limit so one kind of traffic can't starve the
+ * others or hammer a single Google API.
+ *
+ * Requests can also be scheduled by priority class. Each class has its own concurrency
+ * limit, and the non-critical classes share a common cap, so road data never queues
+ * behind image downloads. Within a class the earliest deadline goes first. A request
+ * still queued when its deadline passes is failed with a TimeoutException right away
+ * instead of being sent, whether or not a slot has come free.
+ */
+public final class IoExecutor {
+
+    private static final Logger logger = Logger.getLogger(IoExecutor.class.getName());
+
+    public enum Endpoint {
+        SNAP_TO_ROADS(4),
+        STREET_VIEW(8),
+        STATIC_MAP(4);
+
+        private final int defaultLimit;
+
+        Endpoint(int defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+
+        public int getDefaultLimit() {
+            return defaultLimit;
+        }
+    }
+
+    public enum Priority {
+        CRITICAL(4), // road data, the car runs out of road without it
+        HIGH(4),     // the street view image on screen
+        MEDIUM(2),   // minimap
+        LOW(2);      // prefetch
+
+        private final int defaultLimit;
+
+        Priority(int defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+
+        public int getDefaultLimit() {
+            return defaultLimit;
+        }
+    }
+
+    private static final int DEFAULT_SHARED_LIMIT = 6;
+
+    private static volatile IoExecutor instance;
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Map<Endpoint, EndpointLimiter> limiters = new EnumMap<>(Endpoint.class);
+
+    // priority scheduling state, all guarded by schedLock
+    private final Object schedLock = new Object();
+    private final Map<Priority, PriorityQueue<ScheduledTask<?>>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, Integer> classLimits = new EnumMap<>(Priority.class);
+    private final Map<Priority, Integer> classRunning = new EnumMap<>(Priority.class);
+    private int sharedLimit = DEFAULT_SHARED_LIMIT;
+    private int sharedRunning = 0;
+    private long nextSeq = 0;
+
+    // wakes dispatch() when the earliest queued deadline passes; created on the first one.
+    // At most one sweep is pending, for sweepDeadlineNanos.
+    private ScheduledThreadPoolExecutor deadlineSweeper;
+    private ScheduledFuture<?> pendingSweep;
+    private long sweepDeadlineNanos;
+
+    public IoExecutor() {
+        this(true);
+    }
+
+    /**
+     * @param preferVirtualThreads use virtual threads when the running JDK supports them
+     */
+    public IoExecutor(boolean preferVirtualThreads) {
+        ExecutorService virtual = preferVirtualThreads ? tryCreateVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+        for (Endpoint endpoint : Endpoint.values()) {
+            limiters.put(endpoint, new EndpointLimiter(endpoint.getDefaultLimit()));
+        }
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new PriorityQueue<>(ScheduledTask.ORDER));
+            classLimits.put(priority, priority.getDefaultLimit());
+            classRunning.put(priority, 0);
+        }
+    }
+
+    /** Shared instance used by the API controller, caches and image loaders. */
+    public static IoExecutor getInstance() {
+        IoExecutor local = instance;
+        if (local == null) {
+            synchronized (IoExecutor.class) {
+                local = instance;
+                if (local == null) {
+                    local = new IoExecutor();
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() only exists on JDK 21+, and we still compile for 17
+    private static ExecutorService tryCreateVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.info("virtual threads unavailable, using platform thread pool for I/O");
+            return null;
+        }
+    }
+
+    /**
+     * Runs the task asynchronously once a slot for the endpoint is free.
+     */
+    public <T> CompletableFuture<T> submit(Endpoint endpoint, Callable<T> task) {
+        return submit(() -> call(endpoint, task));
+    }
+
+    /**
+     * Schedules the task in its priority class, then runs it holding an endpoint slot.
+     *
+     * @param deadlineMs how long the request may wait before it is no longer worth sending, 0 for no deadline
+     */
+    public <T> CompletableFuture<T> submit(Endpoint endpoint, Priority priority, long deadlineMs, Callable<T> task) {
+        return submit(priority, deadlineMs, () -> call(endpoint, task));
+    }
+
+    /**
+     * Schedules the task in its priority class only. Use this when the task takes its
+     * endpoint slot itself through call(), e.g. because it may be served from a cache.
+     *
+     * @param deadlineMs how long the request may wait before it is no longer worth sending, 0 for no deadline
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, long deadlineMs, Callable<T> task) {
+        long deadlineNanos = deadlineMs > 0 ? System.nanoTime() + deadlineMs * 1_000_000L : Long.MAX_VALUE;
+        ScheduledTask<T> scheduled;
+        synchronized (schedLock) {
+            scheduled = new ScheduledTask<>(priority, deadlineNanos, nextSeq++, task);
+            queues.get(priority).add(scheduled);
+        }
+        dispatch();
+        return scheduled.future;
+    }
+
+    /**
+     * Keeps one sweep pending for the earliest deadline still queued, so a task waiting
+     * for a slot fails on time. A pending sweep is only replaced when a sooner deadline
+     * is queued, and cancelled when nothing with a deadline is left waiting.
+     */
+    private void scheduleSweepLocked(long now) {
+        long earliest = Long.MAX_VALUE;
+        for (PriorityQueue<ScheduledTask<?>> queue : queues.values()) {
+            ScheduledTask<?> head = queue.peek();
+            if (head != null && head.deadlineNanos != Long.MAX_VALUE
+                    && (earliest == Long.MAX_VALUE || head.deadlineNanos - earliest < 0)) {
+                earliest = head.deadlineNanos;
+            }
+        }
+
+        if (pendingSweep != null) {
+            if (earliest != Long.MAX_VALUE && sweepDeadlineNanos - earliest <= 0) {
+                return; // fires first anyway; the dispatch it runs schedules the next one
+            }
+            pendingSweep.cancel(false);
+            pendingSweep = null;
+        }
+        if (earliest == Long.MAX_VALUE) return;
+
+        if (deadlineSweeper == null) {
+            deadlineSweeper = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "io-deadline-sweeper");
+                t.setDaemon(true);
+                return t;
+            });
+            deadlineSweeper.setRemoveOnCancelPolicy(true);
+        }
+        long deadline = earliest;
+        long delay = Math.max(0L, deadline - now) + 1_000_000L;
+        try {
+            pendingSweep = deadlineSweeper.schedule(() -> sweep(deadline), delay, TimeUnit.NANOSECONDS);
+            sweepDeadlineNanos = deadline;
+        } catch (RejectedExecutionException ignored) {
+            // shut down; nothing left to sweep for
+        }
+    }
+
+    private void sweep(long deadline) {
+        synchronized (schedLock) {
+            if (pendingSweep != null && sweepDeadlineNanos == deadline) {
+                pendingSweep = null;
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Fails every queued task past its deadline, then starts as many queued tasks as the
+     * class and shared limits allow, highest priority first. Called on every submit,
+     * every completion and when a queued deadline passes.
+     */
+    private void dispatch() {
+        List<ScheduledTask<?>> toStart = new ArrayList<>();
+        List<ScheduledTask<?>> expired = new ArrayList<>();
+        long now = System.nanoTime();
+
+        synchronized (schedLock) {
+            for (Priority priority : Priority.values()) {
+                PriorityQueue<ScheduledTask<?>> queue = queues.get(priority);
+                boolean shared = priority != Priority.CRITICAL;
+
+                // earliest deadline first, so the expired tasks are all at the head
+                while (!queue.isEmpty() && queue.peek().deadlineNanos != Long.MAX_VALUE
+                        && queue.peek().deadlineNanos - now < 0) {
+                    expired.add(queue.poll());
+                }
+
+                while (!queue.isEmpty()
+                        && classRunning.get(priority) < classLimits.get(priority)
+                        && (!shared || sharedRunning < sharedLimit)) {
+                    ScheduledTask<?> next = queue.poll();
+                    if (next.deadlineNanos != Long.MAX_VALUE && next.deadlineNanos - now < 0) {
+                        expired.add(next);
+                        continue;
+                    }
+                    classRunning.merge(priority, 1, Integer::sum);
+                    if (shared) sharedRunning++;
+                    toStart.add(next);
+                }
+            }
+            scheduleSweepLocked(now);
+        }
+
+        for (ScheduledTask<?> task : expired) {
+            task.future.completeExceptionally(new TimeoutException(task.priority + " request passed its deadline before it started"));
+        }
+        for (ScheduledTask<?> task : toStart) {
+            start(task);
+        }
+    }
+
+    private <T> void start(ScheduledTask<T> scheduled) {
+        try {
+            executor.execute(() -> {
+                try {
+                    scheduled.future.complete(scheduled.task.call());
+                } catch (Throwable t) {
+                    scheduled.future.completeExceptionally(t);
+                } finally {
+                    finished(scheduled.priority);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finished(scheduled.priority);
+            scheduled.future.completeExceptionally(e);
+        }
+    }
+
+    private void finished(Priority priority) {
+        synchronized (schedLock) {
+            classRunning.merge(priority, -1, Integer::sum);
+            if (priority != Priority.CRITICAL) sharedRunning--;
+        }
+        dispatch();
+    }
+
+    /**
+     * Runs the task asynchronously without taking an endpoint slot. Use this when the
+     * task limits itself through call(), e.g. because it may be served from a cache.
+     * If the executor has been shut down the returned future fails with a
+     * RejectedExecutionException.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.call();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Runs the task on the calling thread, holding one of the endpoint's slots while it runs.
+     */
+    public <T> T call(Endpoint endpoint, Callable<T> task) throws Exception {
+        EndpointLimiter limiter = limiters.get(endpoint);
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for a " + endpoint + " slot", e);
+        }
+        limiter.inFlight.incrementAndGet();
+        try {
+            return task.call();
+        } finally {
+            limiter.inFlight.decrementAndGet();
+            limiter.release();
+        }
+    }
+
+    public void setConcurrencyLimit(Endpoint endpoint, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit must be > 0");
+        limiters.get(endpoint).resize(limit);
+    }
+
+    public int getConcurrencyLimit(Endpoint endpoint) {
+        return limiters.get(endpoint).limit;
+    }
+
+    public int getInFlight(Endpoint endpoint) {
+        return limiters.get(endpoint).inFlight.get();
+    }
+
+    public void setClassLimit(Priority priority, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit must be > 0");
+        synchronized (schedLock) {
+            classLimits.put(priority, limit);
+        }
+        dispatch();
+    }
+
+    /** Combined limit for every class except CRITICAL, which is never held back by lower-priority traffic. */
+    public void setSharedLimit(int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit must be > 0");
+        synchronized (schedLock) {
+            sharedLimit = limit;
+        }
+        dispatch();
+    }
+
+    public int getQueued(Priority priority) {
+        synchronized (schedLock) {
+            return queues.get(priority).size();
+        }
+    }
+
+    public int getRunning(Priority priority) {
+        synchronized (schedLock) {
+            return classRunning.get(priority);
+        }
+    }
+
+    /** Deadline sweeps waiting to run; at most one. */
+    int getPendingSweeps() {
+        synchronized (schedLock) {
+            return deadlineSweeper == null ? 0 : deadlineSweeper.getQueue().size();
+        }
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        synchronized (schedLock) {
+            if (deadlineSweeper != null) deadlineSweeper.shutdownNow();
+            pendingSweep = null;
+        }
+    }
+
+    private static final class ScheduledTask<T> {
+        // earliest deadline first, then submission order
+        static final Comparator<ScheduledTask<?>> ORDER =
+                Comparator.<ScheduledTask<?>>comparingLong(t -> t.deadlineNanos).thenComparingLong(t -> t.seq);
+
+        final Priority priority;
+        final long deadlineNanos;
+        final long seq;
+        final Callable<T> task;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        ScheduledTask(Priority priority, long deadlineNanos, long seq, Callable<T> task) {
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+            this.seq = seq;
+            this.task = task;
+        }
+    }
+
+    /** Semaphore whose permit count can be changed at runtime without losing held permits. */
+    private static final class EndpointLimiter extends Semaphore {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile int limit;
+
+        EndpointLimiter(int limit) {
+            super(limit, true);
+            this.limit = limit;
+        }
+
+        synchronized void resize(int newLimit) {
+            int delta = newLimit - limit;
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
+            limit = newLimit;
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "io-worker-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
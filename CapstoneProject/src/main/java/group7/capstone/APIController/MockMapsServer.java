@@ -0,0 +1,439 @@
+package group7.capstone.APIController;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Local stand-in for the Street View, Static Map and Snap to Roads APIs, for load tests
+ * and benchmarks that shouldn't touch the real services.
+ *
+ * Roads come from a recorded snapToRoads response if one is set, otherwise from a
+ * synthetic Manhattan grid: every path point is snapped to the nearest grid street and,
+ * like the real API with interpolate=true, points are filled in along the street
+ * (turning at intersections) between consecutive snapped points.
+ *
+ * Images come from a local directory if one is set (picked deterministically from the
+ * request parameters), otherwise they are generated, with colours that depend on the
+ * position and heading so different poses give different frames.
+ *
+ * Latency, jitter and error rate are configurable, and all randomness comes from one
+ * seeded Random, so a single-threaded run is fully repeatable.
+ *
+ * Point the app at it with APIConfig.setEndpoints(server.endpoints()).
+ */
+public class MockMapsServer {
+
+    private static final Logger logger = Logger.getLogger(MockMapsServer.class.getName());
+
+    private static final double METRES_PER_DEG_LAT = 111_320.0;
+    private static final double INTERPOLATE_STEP_METRES = 10.0;
+    private static final int GENERATED_IMAGE_CACHE_SIZE = 256;
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+
+    // fault injection, all draws from the seeded random are made under its lock
+    private final Random random;
+    private volatile int latencyMs = 0;
+    private volatile int jitterMs = 0;
+    private volatile double errorRate = 0.0;
+
+    // synthetic road grid
+    private volatile double gridSpacingMeters = 80.0;
+    private final double referenceLat;
+
+    private volatile String recordedRoadJson;
+    private volatile List<Path> imageFiles = Collections.emptyList();
+
+    private final Map<String, byte[]> generatedImages = Collections.synchronizedMap(
+            new LinkedHashMap<String, byte[]>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > GENERATED_IMAGE_CACHE_SIZE;
+                }
+            });
+
+    private final AtomicLong streetViewRequests = new AtomicLong();
+    private final AtomicLong staticMapRequests = new AtomicLong();
+    private final AtomicLong snapToRoadsRequests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    /**
+     * @param port port to listen on, 0 for any free port
+     * @param seed seed for latency jitter and injected errors
+     */
+    public MockMapsServer(int port, long seed) throws IOException {
+        this(port, seed, 45.42);
+    }
+
+    /**
+     * @param referenceLat latitude the synthetic grid is laid out at (only affects east-west spacing)
+     */
+    public MockMapsServer(int port, long seed, double referenceLat) throws IOException {
+        this.random = new Random(seed);
+        this.referenceLat = referenceLat;
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        // a thread per request so injected latency overlaps like a real server
+        AtomicInteger count = new AtomicInteger();
+        handlers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "mock-maps-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(handlers);
+
+        server.createContext("/maps/api/streetview", exchange -> handle(exchange, streetViewRequests, this::streetView));
+        server.createContext("/maps/api/staticmap", exchange -> handle(exchange, staticMapRequests, this::staticMap));
+        server.createContext("/v1/snapToRoads", exchange -> handle(exchange, snapToRoadsRequests, this::snapToRoads));
+    }
+
+    public MockMapsServer start() {
+        server.start();
+        logger.info("mock maps server listening on " + getBaseUrl());
+        return this;
+    }
+
+    public void stop() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /** Endpoints that route every API call to this server. */
+    public EndpointProvider endpoints() {
+        return EndpointProvider.local(getBaseUrl());
+    }
+
+    // ---------------------------------------------------------------- request handling
+
+    private interface Handler {
+        Reply handle(Map<String, String> query) throws IOException;
+    }
+
+    private static final class Reply {
+        final int status;
+        final String contentType;
+        final byte[] body;
+
+        Reply(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    private void handle(HttpExchange exchange, AtomicLong counter, Handler handler) throws IOException {
+        counter.incrementAndGet();
+        try {
+            int delay;
+            boolean fail;
+            synchronized (random) {
+                delay = latencyMs + (jitterMs > 0 ? random.nextInt(2 * jitterMs + 1) - jitterMs : 0);
+                fail = errorRate > 0 && random.nextDouble() < errorRate;
+            }
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+
+            Reply reply;
+            if (fail) {
+                injectedErrors.incrementAndGet();
+                reply = json(503, "{\"error\":{\"code\":503,\"message\":\"injected failure\",\"status\":\"UNAVAILABLE\"}}");
+            } else {
+                try {
+                    reply = handler.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+                } catch (IllegalArgumentException e) {
+                    reply = json(400, "{\"error\":{\"code\":400,\"message\":\"" + String.valueOf(e.getMessage()).replace('"', '\'') + "\",\"status\":\"INVALID_ARGUMENT\"}}");
+                }
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", reply.contentType);
+            exchange.sendResponseHeaders(reply.status, reply.body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(reply.body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static Reply json(int status, String body) {
+        return new Reply(status, "application/json; charset=UTF-8", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ---------------------------------------------------------------- images
+
+    private Reply streetView(Map<String, String> query) throws IOException {
+        double[] location = parseLatLng(query.get("location"));
+        int heading = (int) Math.round(Double.parseDouble(query.getOrDefault("heading", "0")));
+        int[] size = parseSize(query.getOrDefault("size", "800x600"));
+        return image("sv", location[0], location[1], heading, size);
+    }
+
+    private Reply staticMap(Map<String, String> query) throws IOException {
+        double[] location = parseLatLng(query.get("markers"));
+        int[] size = parseSize(query.getOrDefault("size", "400x400"));
+        return image("map", location[0], location[1], 0, size);
+    }
+
+    private Reply image(String kind, double lat, double lng, int heading, int[] size) throws IOException {
+        String key = String.format("%s_%.5f_%.5f_%d_%dx%d", kind, lat, lng, heading, size[0], size[1]);
+
+        List<Path> files = imageFiles;
+        if (!files.isEmpty()) {
+            Path file = files.get(Math.floorMod(key.hashCode(), files.size()));
+            String name = file.getFileName().toString().toLowerCase();
+            return new Reply(200, name.endsWith(".png") ? "image/png" : "image/jpeg", Files.readAllBytes(file));
+        }
+
+        byte[] bytes = generatedImages.get(key);
+        if (bytes == null) {
+            bytes = generateImage(lat, lng, heading, size[0], size[1]);
+            generatedImages.put(key, bytes);
+        }
+        return new Reply(200, "image/jpeg", bytes);
+    }
+
+    // a sky/ground split whose colours follow heading and position
+    private static byte[] generateImage(double lat, double lng, int heading, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            float hue = Math.floorMod(heading, 360) / 360f;
+            float shade = (float) (Math.abs(Math.sin(lat * 5000) * Math.cos(lng * 5000)));
+            g.setPaint(new GradientPaint(0, 0, Color.getHSBColor(hue, 0.5f, 1f),
+                    0, height / 2f, Color.getHSBColor(hue, 0.2f, 0.9f)));
+            g.fillRect(0, 0, width, height / 2);
+            g.setColor(Color.getHSBColor(0.25f, 0.3f, 0.3f + 0.5f * shade));
+            g.fillRect(0, height / 2, width, height - height / 2);
+        } finally {
+            g.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "jpg", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static int[] parseSize(String size) {
+        String[] parts = size.toLowerCase().split("x");
+        if (parts.length != 2) throw new IllegalArgumentException("bad size: " + size);
+        return new int[]{Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+    }
+
+    private static double[] parseLatLng(String value) {
+        if (value == null) throw new IllegalArgumentException("missing location");
+        String[] parts = value.split(",");
+        if (parts.length != 2) throw new IllegalArgumentException("bad location: " + value);
+        return new double[]{Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())};
+    }
+
+    // ---------------------------------------------------------------- roads
+
+    private Reply snapToRoads(Map<String, String> query) {
+        String recorded = recordedRoadJson;
+        if (recorded != null) {
+            return json(200, recorded);
+        }
+
+        String path = query.get("path");
+        if (path == null || path.isEmpty()) throw new IllegalArgumentException("missing path");
+
+        List<double[]> input = new ArrayList<>();
+        for (String point : path.split("\\|")) {
+            input.add(parseLatLng(point));
+        }
+        boolean interpolate = Boolean.parseBoolean(query.getOrDefault("interpolate", "false"));
+
+        StringBuilder json = new StringBuilder("{\"snappedPoints\":[");
+        double[] previous = null;
+        boolean first = true;
+        for (int i = 0; i < input.size(); i++) {
+            double[] snapped = snapToGrid(toMetres(input.get(i)));
+            if (interpolate && previous != null) {
+                for (double[] between : interpolateAlongGrid(previous, snapped)) {
+                    first = appendPoint(json, first, between, -1);
+                }
+            }
+            first = appendPoint(json, first, snapped, i);
+            previous = snapped;
+        }
+        return json(200, json.append("]}").toString());
+    }
+
+    private boolean appendPoint(StringBuilder json, boolean first, double[] metres, int originalIndex) {
+        double[] latLng = toLatLng(metres);
+        if (!first) json.append(',');
+        json.append("{\"location\":{\"latitude\":").append(latLng[0])
+                .append(",\"longitude\":").append(latLng[1]).append('}');
+        if (originalIndex >= 0) {
+            json.append(",\"originalIndex\":").append(originalIndex);
+        }
+        json.append(",\"placeId\":\"").append(placeId(metres)).append("\"}");
+        return false;
+    }
+
+    private static final int EAST_WEST = 0;
+    private static final int NORTH_SOUTH = 1;
+
+    // which street a point is on: the nearer of its east-west and north-south grid lines.
+    // Returns {east, north, EAST_WEST or NORTH_SOUTH}
+    private double[] snapToGrid(double[] en) {
+        double spacing = gridSpacingMeters;
+        double nearestNorthLine = Math.round(en[1] / spacing) * spacing;
+        double nearestEastLine = Math.round(en[0] / spacing) * spacing;
+        if (Math.abs(en[1] - nearestNorthLine) <= Math.abs(en[0] - nearestEastLine)) {
+            return new double[]{en[0], nearestNorthLine, EAST_WEST};
+        }
+        return new double[]{nearestEastLine, en[1], NORTH_SOUTH};
+    }
+
+    // points strictly between a and b, every INTERPOLATE_STEP_METRES, turning at the
+    // intersection when one is on an east-west street and the other on a north-south one
+    private List<double[]> interpolateAlongGrid(double[] a, double[] b) {
+        List<double[]> points = new ArrayList<>();
+        if (a[2] == b[2]) {
+            addSteps(points, a, b);
+        } else {
+            double[] corner = a[2] == EAST_WEST
+                    ? new double[]{b[0], a[1], EAST_WEST}
+                    : new double[]{a[0], b[1], NORTH_SOUTH};
+            addSteps(points, a, corner);
+            points.add(corner);
+            addSteps(points, corner, b);
+        }
+        return points;
+    }
+
+    private static void addSteps(List<double[]> points, double[] from, double[] to) {
+        double dist = Math.hypot(to[0] - from[0], to[1] - from[1]);
+        for (double along = INTERPOLATE_STEP_METRES; along < dist; along += INTERPOLATE_STEP_METRES) {
+            double t = along / dist;
+            points.add(new double[]{from[0] + (to[0] - from[0]) * t, from[1] + (to[1] - from[1]) * t});
+        }
+    }
+
+    private String placeId(double[] en) {
+        long row = Math.round(en[1] / gridSpacingMeters);
+        long col = Math.round(en[0] / gridSpacingMeters);
+        return "mock-" + row + "-" + col;
+    }
+
+    // {east, north} metres on a plane tangent at referenceLat
+    private double[] toMetres(double[] latLng) {
+        return new double[]{
+                latLng[1] * METRES_PER_DEG_LAT * Math.cos(Math.toRadians(referenceLat)),
+                latLng[0] * METRES_PER_DEG_LAT
+        };
+    }
+
+    private double[] toLatLng(double[] en) {
+        return new double[]{
+                en[1] / METRES_PER_DEG_LAT,
+                en[0] / (METRES_PER_DEG_LAT * Math.cos(Math.toRadians(referenceLat)))
+        };
+    }
+
+    // ---------------------------------------------------------------- configuration
+
+    /** Fixed delay added to every response. */
+    public void setLatencyMs(int latencyMs) {
+        if (latencyMs < 0) throw new IllegalArgumentException("latencyMs must be >= 0");
+        this.latencyMs = latencyMs;
+    }
+
+    /** Each response is delayed by a further uniform random amount in [-jitterMs, +jitterMs]. */
+    public void setJitterMs(int jitterMs) {
+        if (jitterMs < 0) throw new IllegalArgumentException("jitterMs must be >= 0");
+        this.jitterMs = jitterMs;
+    }
+
+    /** Fraction of requests (0..1) answered with HTTP 503 instead of data. */
+    public void setErrorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1) throw new IllegalArgumentException("errorRate must be in [0, 1]");
+        this.errorRate = errorRate;
+    }
+
+    public void setGridSpacingMeters(double gridSpacingMeters) {
+        if (gridSpacingMeters <= 0) throw new IllegalArgumentException("gridSpacingMeters must be > 0");
+        this.gridSpacingMeters = gridSpacingMeters;
+    }
+
+    /** Serves this snapToRoads response for every road request, or null to go back to the synthetic grid. */
+    public void setRecordedRoad(String snapToRoadsJson) {
+        this.recordedRoadJson = snapToRoadsJson;
+    }
+
+    public void setRecordedRoad(Path snapToRoadsJsonFile) throws IOException {
+        setRecordedRoad(Files.readString(snapToRoadsJsonFile));
+    }
+
+    /** Serves .jpg/.jpeg/.png files from this directory instead of generated images, or null to generate. */
+    public void setImageDirectory(Path directory) throws IOException {
+        if (directory == null) {
+            imageFiles = Collections.emptyList();
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            imageFiles = files.filter(p -> {
+                String name = p.getFileName().toString().toLowerCase();
+                return name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png");
+            }).sorted().toList();
+        }
+    }
+
+    public long getStreetViewRequests() { return streetViewRequests.get(); }
+    public long getStaticMapRequests() { return staticMapRequests.get(); }
+    public long getSnapToRoadsRequests() { return snapToRoadsRequests.get(); }
+    public long getInjectedErrors() { return injectedErrors.get(); }
+}
@@ -0,0 +1,61 @@
+package group7.capstone.APIController;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often and how patiently a failed API call is retried.
+ *
+ * Delays grow exponentially from baseDelayMs up to maxDelayMs, and each one is drawn
+ * uniformly from [0, cap] ("full jitter") so clients that failed together don't all
+ * retry at the same instant.
+ */
+public class RetryPolicy {
+
+    private int maxAttempts = 3;
+    private long baseDelayMs = 200;
+    private long maxDelayMs = 2_000;
+
+    public RetryPolicy() {
+    }
+
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        setMaxAttempts(maxAttempts);
+        setBaseDelayMs(baseDelayMs);
+        setMaxDelayMs(maxDelayMs);
+    }
+
+    /** Never retries. */
+    public static RetryPolicy none() {
+        return new RetryPolicy(1, 0, 0);
+    }
+
+    /**
+     * @param retry 1 for the first retry, 2 for the second, ...
+     */
+    public long backoffMs(int retry) {
+        int shift = Math.min(retry - 1, 30);
+        long cap = Math.min(maxDelayMs, baseDelayMs << shift);
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be >= 1");
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBaseDelayMs() { return baseDelayMs; }
+
+    public void setBaseDelayMs(long baseDelayMs) {
+        if (baseDelayMs < 0) throw new IllegalArgumentException("baseDelayMs must be >= 0");
+        this.baseDelayMs = baseDelayMs;
+    }
+
+    public long getMaxDelayMs() { return maxDelayMs; }
+
+    public void setMaxDelayMs(long maxDelayMs) {
+        if (maxDelayMs < 0) throw new IllegalArgumentException("maxDelayMs must be >= 0");
+        this.maxDelayMs = maxDelayMs;
+    }
+}
@@ -5,16 +5,22 @@ import com.github.kwhat.jnativehook.NativeHookException;
 import com.jme3.system.NativeLibraryLoader;
 import group7.capstone.APIController.*;
 import group7.capstone.technicalsubsystem.TechnicalSubsystemController;
+import group7.capstone.caching.CacheConfig;
 import group7.capstone.caching.RoadApiCacheManager;
 import group7.capstone.technicalsubsystem.InputHandler;
+import group7.capstone.technicalsubsystem.SimulationClock;
 import group7.capstone.technicalsubsystem.VehicleConfig;
 import group7.capstone.visuals.ImageLoader;
+import group7.capstone.visuals.MappedFrameStore;
+import group7.capstone.visuals.GUI.GuiUpdateBus;
+import group7.capstone.visuals.GUI.HudSnapshot;
 import group7.capstone.visuals.GUI.SimulatorFrame;
 
 import javax.swing.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 
 public class Main {
 
@@ -22,9 +28,29 @@ public class Main {
 
         NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
 
+        // -Dmaps.mock=true runs against a local stand-in server instead of the Google APIs
+        MockMapsServer mockMaps = null;
+        if (Boolean.getBoolean("maps.mock")) {
+            mockMaps = new MockMapsServer(Integer.getInteger("maps.mock.port", 0), Long.getLong("maps.mock.seed", 42L));
+            mockMaps.setLatencyMs(Integer.getInteger("maps.mock.latencyMs", 0));
+            mockMaps.setJitterMs(Integer.getInteger("maps.mock.jitterMs", 0));
+            mockMaps.setErrorRate(Double.parseDouble(System.getProperty("maps.mock.errorRate", "0")));
+            String imageDir = System.getProperty("maps.mock.images");
+            if (imageDir != null) {
+                mockMaps.setImageDirectory(java.nio.file.Paths.get(imageDir));
+            }
+            APIConfig.setEndpoints(mockMaps.start().endpoints());
+        }
+
         GoogleMapsAPIController googleApi = new GoogleMapsAPIController();
         RoadApiCacheManager roadCache = new RoadApiCacheManager(googleApi);
+
+        // sizes and TTLs from cache_config.properties, adjustable at runtime over JMX
+        CacheConfig cacheConfig = CacheConfig.getInstance();
+        cacheConfig.registerMBean();
+        cacheConfig.addListener(roadCache::applyConfig);
         TechnicalSubsystemController controller = new TechnicalSubsystemController(googleApi, roadCache);
+        cacheConfig.addListener(controller::applyConfig);
 
         VehicleConfig cfg = VehicleConfig.getInstance();
         cfg.setMaxThrottleForce(6500f);
@@ -44,6 +70,7 @@ public class Main {
 
         // --- GUI setup  ---
         SimulatorFrame[] frameRef = new SimulatorFrame[1];
+        GuiUpdateBus[] busRef = new GuiUpdateBus[1];
         SwingUtilities.invokeAndWait(() -> {
             SimulatorFrame frame = new SimulatorFrame();
             frame.setVisible(true);
@@ -59,18 +86,34 @@ public class Main {
             frame.setStreetViewImage(new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB));
             frame.setFooterStatus("Loading...");
             frameRef[0] = frame;
+
+            // the sim thread only publishes snapshots; this renders them on the EDT
+            busRef[0] = new GuiUpdateBus(frame);
+            busRef[0].start();
         });
 
         SimulatorFrame frame = frameRef[0];
+        GuiUpdateBus gui = busRef[0];
         ImageLoader imageLoader = new ImageLoader(googleApi);
         ImageLoader mapLoader = new ImageLoader(googleApi);
+        cacheConfig.addListener(imageLoader::applyConfig);
+
+        // every street view frame of the drive stays available off-heap for rewind/replay
+        MappedFrameStore frameStore = null;
+        try {
+            frameStore = MappedFrameStore.createTemp(cacheConfig.getFrameStoreMaxBytes());
+            imageLoader.setFrameStore(frameStore);
+        } catch (IOException | IllegalArgumentException ex) {
+            System.out.println("Frame store disabled: " + ex.getMessage());
+        }
+        cacheConfig.addListener(mapLoader::applyConfig);
 
         // --- Fixed-step timing ---
         final float dt = 1f / 60f;
-        long frameNanos = (long) (dt * 1_000_000_000L);
-        long nextTick = System.nanoTime();
+        SimulationClock clock = new SimulationClock(dt);
 
         float simTime = 0f;
+        float prevKmh = 0f;
 
         // Current controls (updated every frame from InputHandler)
         float throttle = 0.0f;
@@ -106,27 +149,13 @@ public class Main {
         }
         GlobalScreen.addNativeKeyListener(new InputHandler());
 
-        boolean running = true;
-
-        Thread zoomthread = new Thread() {
-            public void run() {
-                while (running) {
-                    try {
-                        float speed = controller.getSpeedKmh();
-                        int turn = controller.getHeadingDegrees();
-                        frame.getImage().zoom(speed, turn);
-                        sleep(50);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            }
-        };
-
-        zoomthread.start();
-
+        clock.start();
         while (simTime < endTime && !InputHandler.isExitRequested()) {
 
+            // ---- Frame pacing: wait for the next step, then run whatever is due ----
+            clock.waitForNextStep();
+            int steps = clock.advance();
+
             // ---- Read input state each frame ----
             throttle = InputHandler.isForward() ? THROTTLE_ON : 0.0f;
             brake    = InputHandler.isBrake()   ? BRAKE_ON    : 0.0f;
@@ -137,13 +166,16 @@ public class Main {
             if (InputHandler.isLeft())  steering -= STEER_MAG;
             if (InputHandler.isRight()) steering += STEER_MAG;
 
-            // ---- Step sim ----
-            controller.updateAndMaybeRequestMoreRoad(throttle, brake, steering, dt);
-            simTime += dt;
+            // ---- Step sim (more than once if the loop fell behind) ----
+            for (int i = 0; i < steps; i++) {
+                prevKmh = controller.getSpeedKmh();
+                controller.updateAndMaybeRequestMoreRoad(throttle, brake, steering, dt);
+            }
+            simTime = (float) clock.getSimTime();
 
             // ---- GUI updates ----
-            hudTick += dt;
-            imgTick += dt;
+            hudTick += steps * dt;
+            imgTick += steps * dt;
 
             if (hudTick >= HUD_DT && frame != null) {
                 hudTick = 0f;
@@ -151,7 +183,9 @@ public class Main {
                 double lat = controller.getCurrentLatitude();
                 double lon = controller.getCurrentLongitude();
                 int head = controller.getHeadingDegrees();
-                double kmh = controller.getSpeedKmh();
+                // between the last two physics states, by how far real time is past the last step;
+                // the GUI blends consecutive snapshots again for the street view zoom
+                double kmh = SimulationClock.interpolate(prevKmh, controller.getSpeedKmh(), clock.getAlpha());
 
                 String status;
                 if (!controller.isOnRoad()) {
@@ -169,15 +203,7 @@ public class Main {
                         imageLoader.getLoadingCount()
                 );
 
-                SwingUtilities.invokeLater(() -> {
-                    frame.getHud().setSpeed(kmh);
-                    if (!Double.isNaN(lat) && !Double.isNaN(lon)) {
-                        frame.getHud().setLatLng(lat, lon);
-                    }
-                    frame.getHud().setHeading(head);
-                    frame.getHud().setStatus(status);
-                    frame.setFooterStatus(footer);
-                });
+                gui.publish(new HudSnapshot(kmh, lat, lon, head, status, footer));
             }
 
             if (imgTick >= IMG_DT && frame != null) {
@@ -187,21 +213,15 @@ public class Main {
                 double lon = controller.getCurrentLongitude();
                 int head = controller.getHeadingDegrees();
 
-                // Avoid building up a backlog of image loads.
-                if (imageLoader.getLoadingCount() >= 2) {
-                    // keep the last image until the loader catches up
-                    continue;
-                }
-
-                if (mapLoader.getLoadingCount() >= 2) {
-                    // keep the last image until the loader catches up
-                    continue;
-                }
+                // Avoid building up a backlog of image loads: keep the last image until the
+                // loaders catch up (and still pace the frame, unlike a continue here)
+                boolean loadersBusy = imageLoader.getLoadingCount() >= 2 || mapLoader.getLoadingCount() >= 2;
 
-                boolean haveGeo = !Double.isNaN(lat) && !Double.isNaN(lon);
+                boolean haveGeo = !loadersBusy && !Double.isNaN(lat) && !Double.isNaN(lon);
 
                 // Use world-space distance (metres) to decide when to refresh the image.
-                com.jme3.math.Vector3f pos = controller.getPosition();
+                // the physics frame is re-based on long drives, so measure in the continuous one
+                com.jme3.math.Vector3f pos = controller.getWorldPosition();
                 float distMoved = (lastImgPos == null) ? Float.POSITIVE_INFINITY : pos.distance(lastImgPos);
 
                 // Avoid spamming the same request
@@ -215,27 +235,15 @@ public class Main {
                     lastImgPos = pos.clone();
                     lastImgHeading = head;
 
-                    SwingUtilities.invokeLater(() -> frame.getHud().setStatus("LOADING"));
-
-                    imageLoader.loadImageAsync(lat, lon, head, img -> {
-                        SwingUtilities.invokeLater(() -> {
-                            frame.setStreetViewImage(img);
-                            // don’t overwrite OFF_ROAD if that’s currently true
-                            if (controller.isOnRoad()) {
-                                frame.getHud().setStatus("OK");
-                            }
-                        });
-                    });
-
-                    mapLoader.loadMapAsync(lat, lon, head, img -> {
-                        SwingUtilities.invokeLater(() -> {
-                            frame.getHud().setMapImage(img);
-                            // don’t overwrite OFF_ROAD if that’s currently true
-                            if (controller.isOnRoad()) {
-                                frame.getHud().setStatus("OK");
-                            }
-                        });
-                    });
+                    // shown until the next HUD snapshot (at most 100 ms), as before
+                    gui.publishStatus("LOADING");
+
+                    imageLoader.loadImageAsync(lat, lon, head, gui::postStreetViewImage);
+
+                    // warm the cache for where the car will be at the next refresh
+                    imageLoader.prefetchAhead(lat, lon, head, 20.0);
+
+                    mapLoader.loadMapAsync(lat, lon, head, gui::postMapImage);
                 }
             }
 
@@ -254,22 +262,20 @@ public class Main {
                                 + " | geoPts=" + controller.getGeoPointCount()
                 );
             }
-
-            // ---- Frame pacing ----
-            nextTick += frameNanos;
-            long sleep = nextTick - System.nanoTime();
-            if (sleep > 0) {
-                // sleep(ms, ns)
-                Thread.sleep(sleep / 1_000_000L, (int) (sleep % 1_000_000L));
-            } else {
-                nextTick = System.nanoTime();
-            }
         }
-        
+
+        System.out.println(clock.getStats());
+
         try { GlobalScreen.unregisterNativeHook(); } catch (Exception ignored) {}
         try { imageLoader.shutdown();
             mapLoader.shutdown();} catch (Exception ignored) {}
-        try {zoomthread.interrupt();} catch (Exception ignored) {}
+        gui.stop();
+        if (frameStore != null) {
+            System.out.println(frameStore.getStats());
+            try { frameStore.close(); } catch (IOException ignored) {}
+        }
+
+        if (mockMaps != null) mockMaps.stop();
 
         System.out.println("Done.");
     }
@@ -0,0 +1,254 @@
+package group7.capstone.caching;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cache sizes and TTLs for every cache tier, loaded from cache_config.properties.
+ *
+ * Values missing from the file keep their defaults. Caches attach a listener and get
+ * the current values straight away and again after every change, so setting a value
+ * (e.g. through the CacheConfigMBean in JConsole) resizes the live caches.
+ *
+ * Keys:
+ *   max.cache.size          road cache entries
+ *   max.cache.age.ms        road cache hard expiry
+ *   road.cache.soft.ttl.ms  road cache age after which entries are refreshed in the background;
+ *                           must be below max.cache.age.ms
+ *   preload.distance.km     road left ahead of the car below which more is requested
+ *   image.cache.size        decoded image cache entries, per ImageLoader
+ *   image.cache.max.bytes   decoded image cache pixel budget, per ImageLoader
+ *   frame.store.max.bytes   size of the memory-mapped frame store (read at startup only)
+ */
+public class CacheConfig implements CacheConfigMBean {
+
+    public static final String DEFAULT_FILE = "cache_config.properties";
+    public static final String OBJECT_NAME = "group7.capstone:type=CacheConfig";
+
+    /** Called with the config whenever a cache needs to pick up new values. */
+    public interface Listener {
+        void cacheConfigChanged(CacheConfig config);
+    }
+
+    private static volatile CacheConfig instance;
+
+    private final Path file;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile int roadCacheSize = 200;
+    private volatile long roadMaxAgeMs = 5 * 60 * 1000;
+    private volatile long roadSoftTtlMs = 60 * 1000;
+    private volatile double preloadDistanceKm = 2.0;
+    private volatile int imageCacheSize = 50;
+    private volatile long imageCacheMaxBytes = 256L * 1024 * 1024;
+    private volatile long frameStoreMaxBytes = 512L * 1024 * 1024;
+
+    /** Defaults only, not backed by a file. */
+    public CacheConfig() {
+        this(null);
+    }
+
+    public CacheConfig(Path file) {
+        this.file = file;
+    }
+
+    /** The shared config, loaded from cache_config.properties on first use. */
+    public static CacheConfig getInstance() {
+        CacheConfig local = instance;
+        if (local == null) {
+            synchronized (CacheConfig.class) {
+                local = instance;
+                if (local == null) {
+                    local = new CacheConfig(Paths.get(DEFAULT_FILE));
+                    local.load();
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Reads the file if there is one, otherwise the classpath resource of the same name.
+     * A missing or unreadable file leaves the current values in place.
+     */
+    public synchronized void load() {
+        Properties props = new Properties();
+        try {
+            if (file != null && Files.isReadable(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    props.load(in);
+                }
+            } else {
+                try (InputStream in = CacheConfig.class.getClassLoader().getResourceAsStream(DEFAULT_FILE)) {
+                    if (in != null) props.load(in);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read cache config, using defaults: " + e.getMessage());
+            return;
+        }
+        apply(props);
+    }
+
+    /** Applies the values present in props, skipping any that are missing or invalid. */
+    public synchronized void apply(Properties props) {
+        roadCacheSize = intValue(props, "max.cache.size", roadCacheSize);
+        long maxAge = longValue(props, "max.cache.age.ms", roadMaxAgeMs);
+        long softTtl = longValue(props, "road.cache.soft.ttl.ms", roadSoftTtlMs);
+        if (softTtl < maxAge) {
+            roadMaxAgeMs = maxAge;
+            roadSoftTtlMs = softTtl;
+        } else {
+            System.out.println("Ignoring cache config TTLs: road.cache.soft.ttl.ms=" + softTtl
+                    + " must be below max.cache.age.ms=" + maxAge);
+        }
+        preloadDistanceKm = doubleValue(props, "preload.distance.km", preloadDistanceKm);
+        imageCacheSize = intValue(props, "image.cache.size", imageCacheSize);
+        imageCacheMaxBytes = longValue(props, "image.cache.max.bytes", imageCacheMaxBytes);
+        frameStoreMaxBytes = longValue(props, "frame.store.max.bytes", frameStoreMaxBytes);
+        fireChanged();
+    }
+
+    /** Registers this config with the platform MBean server under OBJECT_NAME. */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered, e.g. a second simulator in the same JVM
+        } catch (JMException e) {
+            System.out.println("Could not register cache config MBean: " + e.getMessage());
+        }
+    }
+
+    /** Adds a listener and immediately hands it the current values. */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        listener.cacheConfigChanged(this);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireChanged() {
+        for (Listener l : listeners) {
+            l.cacheConfigChanged(this);
+        }
+    }
+
+    @Override
+    public void reload() {
+        load();
+    }
+
+    @Override
+    public int getRoadCacheSize() { return roadCacheSize; }
+
+    @Override
+    public void setRoadCacheSize(int entries) {
+        if (entries <= 0) throw new IllegalArgumentException("entries must be > 0");
+        roadCacheSize = entries;
+        fireChanged();
+    }
+
+    @Override
+    public long getRoadMaxAgeMs() { return roadMaxAgeMs; }
+
+    @Override
+    public synchronized void setRoadMaxAgeMs(long ms) {
+        if (ms <= 0) throw new IllegalArgumentException("ms must be > 0");
+        if (ms <= roadSoftTtlMs) {
+            throw new IllegalArgumentException("ms must be > the road soft TTL (" + roadSoftTtlMs + ")");
+        }
+        roadMaxAgeMs = ms;
+        fireChanged();
+    }
+
+    @Override
+    public long getRoadSoftTtlMs() { return roadSoftTtlMs; }
+
+    @Override
+    public synchronized void setRoadSoftTtlMs(long ms) {
+        if (ms <= 0) throw new IllegalArgumentException("ms must be > 0");
+        if (ms >= roadMaxAgeMs) {
+            throw new IllegalArgumentException("ms must be < the road max age (" + roadMaxAgeMs + ")");
+        }
+        roadSoftTtlMs = ms;
+        fireChanged();
+    }
+
+    @Override
+    public int getImageCacheSize() { return imageCacheSize; }
+
+    @Override
+    public void setImageCacheSize(int entries) {
+        if (entries <= 0) throw new IllegalArgumentException("entries must be > 0");
+        imageCacheSize = entries;
+        fireChanged();
+    }
+
+    @Override
+    public long getImageCacheMaxBytes() { return imageCacheMaxBytes; }
+
+    @Override
+    public void setImageCacheMaxBytes(long bytes) {
+        if (bytes <= 0) throw new IllegalArgumentException("bytes must be > 0");
+        imageCacheMaxBytes = bytes;
+        fireChanged();
+    }
+
+    // the store's file is mapped once, so this is not a live MBean attribute
+    public long getFrameStoreMaxBytes() { return frameStoreMaxBytes; }
+
+    @Override
+    public double getPreloadDistanceKm() { return preloadDistanceKm; }
+
+    @Override
+    public void setPreloadDistanceKm(double km) {
+        if (km <= 0) throw new IllegalArgumentException("km must be > 0");
+        preloadDistanceKm = km;
+        fireChanged();
+    }
+
+    private static int intValue(Properties props, String key, int fallback) {
+        long v = longValue(props, key, fallback);
+        return v > Integer.MAX_VALUE ? fallback : (int) v;
+    }
+
+    private static long longValue(Properties props, String key, long fallback) {
+        String raw = props.getProperty(key);
+        if (raw == null) return fallback;
+        try {
+            long v = Long.parseLong(raw.trim());
+            return v > 0 ? v : fallback;
+        } catch (NumberFormatException e) {
+            System.out.println("Ignoring bad cache config value " + key + "=" + raw);
+            return fallback;
+        }
+    }
+
+    private static double doubleValue(Properties props, String key, double fallback) {
+        String raw = props.getProperty(key);
+        if (raw == null) return fallback;
+        try {
+            double v = Double.parseDouble(raw.trim());
+            return v > 0 ? v : fallback;
+        } catch (NumberFormatException e) {
+            System.out.println("Ignoring bad cache config value " + key + "=" + raw);
+            return fallback;
+        }
+    }
+}
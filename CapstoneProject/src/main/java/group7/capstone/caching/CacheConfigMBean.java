@@ -0,0 +1,29 @@
+package group7.capstone.caching;
+
+/**
+ * Management interface for CacheConfig, so cache sizes and TTLs can be changed from
+ * JConsole / VisualVM while the simulator is running.
+ */
+public interface CacheConfigMBean {
+
+    int getRoadCacheSize();
+    void setRoadCacheSize(int entries);
+
+    long getRoadMaxAgeMs();
+    void setRoadMaxAgeMs(long ms);
+
+    long getRoadSoftTtlMs();
+    void setRoadSoftTtlMs(long ms);
+
+    int getImageCacheSize();
+    void setImageCacheSize(int entries);
+
+    long getImageCacheMaxBytes();
+    void setImageCacheMaxBytes(long bytes);
+
+    double getPreloadDistanceKm();
+    void setPreloadDistanceKm(double km);
+
+    /** Re-reads the properties file and pushes the values to every attached cache. */
+    void reload();
+}
@@ -0,0 +1,45 @@
+package group7.capstone.caching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * Picks eviction victims from a concurrent cache map without sorting the whole map.
+ *
+ * Shrinking a cache is done in small batches: each batch keeps only the `count`
+ * oldest entries in a bounded heap (O(n log count)) and the caller drops them before
+ * asking for the next batch, so a large resize never holds a lock for long.
+ */
+public final class Eviction {
+
+    /** Entries evicted per batch when a cache is shrunk. */
+    public static final int BATCH = 16;
+
+    private Eviction() {
+    }
+
+    /** The `count` entries with the smallest age stamps, oldest first. */
+    public static <K, V> List<Map.Entry<K, V>> oldest(Map<K, V> map, ToLongFunction<V> stamp, int count) {
+        if (count <= 0 || map.isEmpty()) return Collections.emptyList();
+
+        // max-heap on the stamp, so the newest of the candidates is the one to drop
+        Comparator<Map.Entry<K, V>> byStamp = Comparator.comparingLong(e -> stamp.applyAsLong(e.getValue()));
+        PriorityQueue<Map.Entry<K, V>> heap = new PriorityQueue<>(count + 1, byStamp.reversed());
+
+        for (Map.Entry<K, V> e : map.entrySet()) {
+            heap.offer(Map.entry(e.getKey(), e.getValue()));
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+
+        List<Map.Entry<K, V>> result = new ArrayList<>(heap);
+        result.sort(byStamp);
+        return result;
+    }
+}
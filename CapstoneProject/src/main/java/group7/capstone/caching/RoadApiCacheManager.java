@@ -2,65 +2,132 @@ package group7.capstone.caching;
 
 import group7.capstone.APIController.APIResponseDomain;
 import group7.capstone.APIController.GoogleMapsAPIController;
+import group7.capstone.APIController.IoExecutor;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Simple in-memory cache for GoogleMapsAPIController.getStreet(lat, lon, heading).
+ *
+ * Entries have two ages. Past the soft TTL an entry is still returned straight away,
+ * but a background refresh is started (stale-while-revalidate), so callers almost
+ * never wait on the API for a road they have seen before. Past the hard TTL (maxAgeMs)
+ * the entry is only used as a fallback if a blocking refetch fails.
  */
 public class RoadApiCacheManager {
 
     private final GoogleMapsAPIController api;
+    private final IoExecutor ioExecutor;
     private final Map<String, Entry> cache = new ConcurrentHashMap<>();
-
-    // config
-    private int maxCacheSize = 200;
-    private long maxAgeMs = 5 * 60 * 1000; // 5 minutes
-
-    // stats
-    private long hits = 0;
-    private long misses = 0;
-    private long apiFetches = 0;
+    // keys with a background refresh in flight, so an entry is only refreshed once at a time
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    // only eviction needs to be serialized; reads and puts go straight to the map
+    private final Object evictionLock = new Object();
+
+    // config, volatile since CacheConfig can change it from the JMX thread
+    private volatile int maxCacheSize = 200;
+    private volatile long maxAgeMs = 5 * 60 * 1000; // 5 minutes, hard expiry
+    private volatile long softTtlMs = 60 * 1000; // 1 minute, refresh in the background after this
+
+    // stats (atomic: road requests now come from I/O executor threads)
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong apiFetches = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
 
     public RoadApiCacheManager(GoogleMapsAPIController api) {
+        this(api, IoExecutor.getInstance());
+    }
+
+    public RoadApiCacheManager(GoogleMapsAPIController api, IoExecutor ioExecutor) {
         this.api = api;
+        this.ioExecutor = ioExecutor != null ? ioExecutor : IoExecutor.getInstance();
     }
 
+    /** Shrinking evicts the oldest entries in small batches, see Eviction. */
     public void setMaxCacheSize(int maxCacheSize) {
+        if (maxCacheSize <= 0) throw new IllegalArgumentException("maxCacheSize must be > 0");
         this.maxCacheSize = maxCacheSize;
+        trimTo(maxCacheSize);
+    }
+
+    /**
+     * Hard expiry: older entries are refetched on the caller's thread. The soft TTL always
+     * stays positive and below it; if it isn't, it is lowered to half the new hard TTL so
+     * background refresh keeps working. That needs at least 2 ms of room.
+     */
+    public synchronized void setMaxAgeMs(long maxAgeMs) {
+        if (maxAgeMs < 2) throw new IllegalArgumentException("maxAgeMs must be >= 2");
+        if (softTtlMs >= maxAgeMs) {
+            this.softTtlMs = Math.max(1, maxAgeMs / 2);
+        }
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Soft expiry: older entries are still returned, but refreshed in the background.
+     * Must be below the hard TTL, otherwise entries would never be refreshed early.
+     */
+    public synchronized void setSoftTtlMs(long softTtlMs) {
+        if (softTtlMs <= 0) throw new IllegalArgumentException("softTtlMs must be > 0");
+        if (softTtlMs >= maxAgeMs) {
+            throw new IllegalArgumentException("softTtlMs must be < maxAgeMs (" + maxAgeMs + ")");
+        }
+        this.softTtlMs = softTtlMs;
     }
 
-    public void setMaxAgeMs(long maxAgeMs) {
+    /** Sets both TTLs together, so a change that moves both can't fail half way. */
+    public synchronized void setTtls(long softTtlMs, long maxAgeMs) {
+        if (softTtlMs <= 0) throw new IllegalArgumentException("softTtlMs must be > 0");
+        if (maxAgeMs <= softTtlMs) throw new IllegalArgumentException("maxAgeMs must be > softTtlMs");
+        this.softTtlMs = softTtlMs;
         this.maxAgeMs = maxAgeMs;
     }
 
+    public long getMaxAgeMs() { return maxAgeMs; }
+    public long getSoftTtlMs() { return softTtlMs; }
+
+    /** Takes the road cache size and TTLs from the config; use as a CacheConfig listener. */
+    public void applyConfig(CacheConfig config) {
+        setTtls(config.getRoadSoftTtlMs(), config.getRoadMaxAgeMs());
+        setMaxCacheSize(config.getRoadCacheSize());
+    }
+
     /**
      * Returns cached APIResponseDomain if available, if not it fetches from API and caches what it gets.
+     * If the API call fails and an expired entry for the same key is still around, that
+     * entry is returned instead of failing: an old road is better than no road.
      */
     public APIResponseDomain getStreet(double lat, double lon, int headingDeg) {
         String key = key(lat, lon, headingDeg);
         Entry e = cache.get(key);
-        if (e != null) {
-            if (e.isValid(maxAgeMs)) {
-                hits++;
-                return e.response;
+        if (e != null && e.isValid(maxAgeMs)) {
+            hits.incrementAndGet();
+            if (!e.isValid(softTtlMs)) {
+                revalidate(key, lat, lon, headingDeg);
             }
-            cache.remove(key);
+            return e.response;
         }
-        misses++;
-        if (cache.size() >= maxCacheSize) {
-            evictOldest();
+        // an expired entry stays until the refetch succeeds, as a fallback
+        Entry stale = e;
+        misses.incrementAndGet();
+        if (stale == null && cache.size() >= maxCacheSize) {
+            trimTo(maxCacheSize - 1);
         }
         APIResponseDomain resp;
         try {
             resp = api.getStreet(lat, lon, headingDeg);
-            apiFetches++;
+            apiFetches.incrementAndGet();
         } catch (Exception ex) {
             System.out.println("API call failed for key=" + key + ": " + ex.getMessage());
+            if (stale != null) {
+                staleServed.incrementAndGet();
+                return stale.response;
+            }
             throw ex;
         }
 
@@ -68,6 +135,24 @@ public class RoadApiCacheManager {
         return resp;
     }
 
+    // refreshes an entry off the caller's thread; on failure the old entry just stays
+    private void revalidate(String key, double lat, double lon, int headingDeg) {
+        if (!refreshing.add(key)) return;
+        revalidations.incrementAndGet();
+
+        ioExecutor.submit(IoExecutor.Endpoint.SNAP_TO_ROADS, IoExecutor.Priority.LOW, 0,
+                () -> api.getStreet(lat, lon, headingDeg)
+        ).whenComplete((resp, ex) -> {
+            refreshing.remove(key);
+            if (ex != null) {
+                System.out.println("Background refresh failed for key=" + key + ": " + ex.getMessage());
+                return;
+            }
+            apiFetches.incrementAndGet();
+            cache.put(key, new Entry(resp));
+        });
+    }
+
     private String key(double lat, double lon, int headingDeg) {
         double rLat = Math.round(lat * 10000.0) / 10000.0;
         double rLon = Math.round(lon * 10000.0) / 10000.0;
@@ -78,24 +163,40 @@ public class RoadApiCacheManager {
         return String.format("%.4f_%.4f_%03d", rLat, rLon, h);
     }
 
-    private void evictOldest() {
-        if (cache.isEmpty()) return;
-
-        List<Map.Entry<String, Entry>> entries = new ArrayList<>(cache.entrySet());
-        entries.sort(Comparator.comparingLong(a -> a.getValue().timestamp));
+    // drops the oldest entries until at most limit remain, a batch at a time
+    private void trimTo(int limit) {
+        while (true) {
+            synchronized (evictionLock) {
+                int excess = cache.size() - limit;
+                if (excess <= 0) return;
 
-        int toRemove = Math.max(1, cache.size() - maxCacheSize + 1);
-        for (int i = 0; i < toRemove && i < entries.size(); i++) {
-            cache.remove(entries.get(i).getKey());
+                for (Map.Entry<String, Entry> e : Eviction.oldest(cache, en -> en.timestamp, Math.min(excess, Eviction.BATCH))) {
+                    cache.remove(e.getKey(), e.getValue());
+                }
+            }
         }
     }
 
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getStaleServed() {
+        return staleServed.get();
+    }
+
     public String getStats() {
-        long total = hits + misses;
-        double hitRate = total == 0 ? 0.0 : (double) hits / total;
+        long h = hits.get();
+        long total = h + misses.get();
+        double hitRate = total == 0 ? 0.0 : (double) h / total;
         return String.format(
-                "RoadCache - size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, apiFetches=%d",
-                cache.size(), maxCacheSize, hits, misses, hitRate * 100.0, apiFetches
+                "RoadCache - size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, apiFetches=%d, revalidations=%d, staleServed=%d",
+                cache.size(), maxCacheSize, h, misses.get(), hitRate * 100.0, apiFetches.get(),
+                revalidations.get(), staleServed.get()
         );
     }
 
@@ -52,6 +52,24 @@ public class CarObject {
         }
     }
 
+    /** Route update after trimming road behind the car; see RoadPipelineController.trimBehind. */
+    public void setRouteSegments(List<PhysicsRoadSegment> segments, int removedFromFront) {
+        if (removedFromFront <= 0) {
+            setRouteSegments(segments);
+            return;
+        }
+        physics.setRouteSegments(segments, removedFromFront);
+    }
+
+    /** Moves the car into a re-based frame; see TechnicalSubsystemController. */
+    public void rebase(Vector3f shift, List<PhysicsRoadSegment> segments) {
+        physics.rebase(shift, segments);
+    }
+
+    public int getCurrentSegmentIndex() {
+        return physics.getCurrentSegmentIndex();
+    }
+
     public void update(float throttle, float brake, float steering, float dt) {
         physics.updateRailState(dt);
 
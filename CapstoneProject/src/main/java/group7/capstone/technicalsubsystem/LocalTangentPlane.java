@@ -0,0 +1,130 @@
+package group7.capstone.technicalsubsystem;
+
+import com.jme3.math.Vector3f;
+
+/**
+ * East-North-Up frame tangent to the WGS84 ellipsoid at an origin point.
+ *
+ * Everything that depends only on the origin (its ECEF position and the ECEF-to-ENU
+ * rotation) is computed once in the constructor, so a conversion is a handful of
+ * multiply-adds plus the sin/cos of the point itself. Unlike a flat lat/lon scaling
+ * this stays accurate to millimetres across the few km the physics frame covers, and
+ * the inverse gives exact lat/lon for positions the car reaches between road points.
+ *
+ * Local coordinates follow the physics convention: x = east, y = up, z = north.
+ */
+public final class LocalTangentPlane {
+
+    private static final double A = 6378137.0;             // WGS84 semi-major axis
+    private static final double F = 1.0 / 298.257223563;   // WGS84 flattening
+    private static final double B = A * (1.0 - F);
+    private static final double E2 = F * (2.0 - F);         // first eccentricity squared
+    private static final double EP2 = E2 / (1.0 - E2);      // second eccentricity squared
+
+    private final double originLat;
+    private final double originLon;
+
+    private final double sinLat0;
+    private final double cosLat0;
+    private final double sinLon0;
+    private final double cosLon0;
+
+    // origin in ECEF
+    private final double x0;
+    private final double y0;
+    private final double z0;
+
+    public LocalTangentPlane(double originLat, double originLon) {
+        this.originLat = originLat;
+        this.originLon = originLon;
+
+        double phi = Math.toRadians(originLat);
+        double lambda = Math.toRadians(originLon);
+        sinLat0 = Math.sin(phi);
+        cosLat0 = Math.cos(phi);
+        sinLon0 = Math.sin(lambda);
+        cosLon0 = Math.cos(lambda);
+
+        double n = A / Math.sqrt(1.0 - E2 * sinLat0 * sinLat0);
+        x0 = n * cosLat0 * cosLon0;
+        y0 = n * cosLat0 * sinLon0;
+        z0 = n * (1.0 - E2) * sinLat0;
+    }
+
+    public double getOriginLat() { return originLat; }
+    public double getOriginLon() { return originLon; }
+
+    /** Local position of a point on the ellipsoid surface, with y = 0 (the road plane). */
+    public Vector3f toLocal(double lat, double lon) {
+        double[] en = new double[2];
+        toLocal(lat, lon, en);
+        return new Vector3f((float) en[0], 0f, (float) en[1]);
+    }
+
+    /** Writes {east, north} in metres into out. */
+    public void toLocal(double lat, double lon, double[] out) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double sinPhi = Math.sin(phi);
+        double cosPhi = Math.cos(phi);
+
+        double n = A / Math.sqrt(1.0 - E2 * sinPhi * sinPhi);
+        double dx = n * cosPhi * Math.cos(lambda) - x0;
+        double dy = n * cosPhi * Math.sin(lambda) - y0;
+        double dz = n * (1.0 - E2) * sinPhi - z0;
+
+        out[0] = -sinLon0 * dx + cosLon0 * dy;
+        out[1] = -sinLat0 * cosLon0 * dx - sinLat0 * sinLon0 * dy + cosLat0 * dz;
+    }
+
+    /**
+     * Converts count points at once into flat east/north arrays, without allocating
+     * per point. The loop body has no branches or calls besides the point's own trig.
+     */
+    public void toLocal(double[] lats, double[] lons, int count, float[] east, float[] north) {
+        final double oneMinusE2 = 1.0 - E2;
+        for (int i = 0; i < count; i++) {
+            double phi = Math.toRadians(lats[i]);
+            double lambda = Math.toRadians(lons[i]);
+            double sinPhi = Math.sin(phi);
+            double cosPhi = Math.cos(phi);
+
+            double n = A / Math.sqrt(1.0 - E2 * sinPhi * sinPhi);
+            double dx = n * cosPhi * Math.cos(lambda) - x0;
+            double dy = n * cosPhi * Math.sin(lambda) - y0;
+            double dz = n * oneMinusE2 * sinPhi - z0;
+
+            east[i] = (float) (-sinLon0 * dx + cosLon0 * dy);
+            north[i] = (float) (-sinLat0 * cosLon0 * dx - sinLat0 * sinLon0 * dy + cosLat0 * dz);
+        }
+    }
+
+    /** {lat, lon} of a local position on the road plane. */
+    public double[] toGeodetic(double east, double north) {
+        double[] out = new double[2];
+        toGeodetic(east, north, out);
+        return out;
+    }
+
+    /**
+     * Writes {lat, lon} of a local road-plane position into out. The tangent plane rises
+     * above the ellipsoid away from the origin, so the point is first dropped by that
+     * curvature before converting (Bowring's method, sub-mm at these distances).
+     */
+    public void toGeodetic(double east, double north, double[] out) {
+        double up = -(east * east + north * north) / (2.0 * A);
+
+        double x = x0 - sinLon0 * east - sinLat0 * cosLon0 * north + cosLat0 * cosLon0 * up;
+        double y = y0 + cosLon0 * east - sinLat0 * sinLon0 * north + cosLat0 * sinLon0 * up;
+        double z = z0 + cosLat0 * north + sinLat0 * up;
+
+        double p = Math.sqrt(x * x + y * y);
+        double theta = Math.atan2(z * A, p * B);
+        double sinT = Math.sin(theta);
+        double cosT = Math.cos(theta);
+
+        double phi = Math.atan2(z + EP2 * B * sinT * sinT * sinT, p - E2 * A * cosT * cosT * cosT);
+        out[0] = Math.toDegrees(phi);
+        out[1] = Math.toDegrees(Math.atan2(y, x));
+    }
+}
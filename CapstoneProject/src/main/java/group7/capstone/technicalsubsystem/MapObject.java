@@ -7,6 +7,12 @@ import com.jme3.math.Vector3f;
 
 public class MapObject {
 
+    /**
+     * Half the width of the ground box. The origin is re-based before the car gets
+     * anywhere near its edge, so it never needs to move.
+     */
+    public static final float GROUND_HALF_EXTENT = 10000f;
+
     private final PhysicsSpace physicsSpace;
 
     public MapObject() {
@@ -18,7 +24,7 @@ public class MapObject {
     private void addGroundPlane() {
         // Big static floor at y=0
         BoxCollisionShape groundShape =
-                new BoxCollisionShape(new Vector3f(10000f, 0.5f, 10000f));
+                new BoxCollisionShape(new Vector3f(GROUND_HALF_EXTENT, 0.5f, GROUND_HALF_EXTENT));
 
         PhysicsRigidBody ground = new PhysicsRigidBody(groundShape, 0f);
         ground.setPhysicsLocation(new Vector3f(0, -0.5f, 0));
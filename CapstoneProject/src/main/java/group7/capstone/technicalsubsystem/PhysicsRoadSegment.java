@@ -2,8 +2,20 @@ package group7.capstone.technicalsubsystem;
 
 import com.jme3.math.Vector3f;
 
+/**
+ * One straight piece of road in the local physics frame.
+ *
+ * Segments are immutable, so everything the rail follower needs per check (direction,
+ * right normal, length, 1/length^2, corridor half-width, XZ bounding box) is computed
+ * once in the constructor. A closest-point query is then a few multiply-adds on floats
+ * with no square root and no allocation.
+ */
 public class PhysicsRoadSegment {
 
+    // corridor the car counts as "on" this segment: half the lanes, at least MIN, plus PAD
+    private static final float MIN_CORRIDOR_HALF_WIDTH = 4.0f;
+    private static final float CORRIDOR_PAD = 1.0f;
+
     private final Vector3f startPoint;
     private final Vector3f endPoint;
     private final int laneCount;
@@ -12,11 +24,33 @@ public class PhysicsRoadSegment {
     // MIN ADD: reference back to source geo point
     private final RoadSegment originalSegment;
 
+    // frame the points are in, shared by every segment of a route (null if unknown)
+    private final LocalTangentPlane plane;
+
+    // precomputed geometry, XZ plane only
+    private final float startX, startZ, endX, endZ;
+    private final float deltaX, deltaZ;
+    private final float length;
+    private final float invLengthSq;          // 0 for a degenerate segment
+    private final float dirX, dirZ;           // unit direction, +Z if degenerate
+    private final float rightX, rightZ;       // unit right normal
+    private final float corridorHalfWidth;
+    private final float minX, minZ, maxX, maxZ;
+
     public PhysicsRoadSegment(Vector3f startPoint,
                               Vector3f endPoint,
                               int laneCount,
                               float laneWidthMeters,
                               RoadSegment originalSegment) {
+        this(startPoint, endPoint, laneCount, laneWidthMeters, originalSegment, null);
+    }
+
+    public PhysicsRoadSegment(Vector3f startPoint,
+                              Vector3f endPoint,
+                              int laneCount,
+                              float laneWidthMeters,
+                              RoadSegment originalSegment,
+                              LocalTangentPlane plane) {
         if (startPoint == null) throw new IllegalArgumentException("startPoint cannot be null");
         if (endPoint == null) throw new IllegalArgumentException("endPoint cannot be null");
         if (laneCount <= 0) throw new IllegalArgumentException("laneCount must be > 0");
@@ -29,6 +63,36 @@ public class PhysicsRoadSegment {
         this.laneWidthMeters = laneWidthMeters;
 
         this.originalSegment = originalSegment;
+        this.plane = plane;
+
+        startX = startPoint.x;
+        startZ = startPoint.z;
+        endX = endPoint.x;
+        endZ = endPoint.z;
+        deltaX = endX - startX;
+        deltaZ = endZ - startZ;
+        length = startPoint.distance(endPoint);
+
+        float lenSqXZ = deltaX * deltaX + deltaZ * deltaZ;
+        if (lenSqXZ < 1e-6f) {
+            invLengthSq = 0f;
+            dirX = 0f;
+            dirZ = 1f;
+        } else {
+            invLengthSq = 1f / lenSqXZ;
+            float invLen = (float) (1.0 / Math.sqrt(lenSqXZ));
+            dirX = deltaX * invLen;
+            dirZ = deltaZ * invLen;
+        }
+        rightX = -dirZ;
+        rightZ = dirX;
+
+        corridorHalfWidth = Math.max(laneCount * laneWidthMeters * 0.5f, MIN_CORRIDOR_HALF_WIDTH) + CORRIDOR_PAD;
+
+        minX = Math.min(startX, endX);
+        maxX = Math.max(startX, endX);
+        minZ = Math.min(startZ, endZ);
+        maxZ = Math.max(startZ, endZ);
     }
 
     public Vector3f getStartPoint() { return startPoint.clone(); }
@@ -37,13 +101,68 @@ public class PhysicsRoadSegment {
     public float getLaneWidth()     { return laneWidthMeters; }
 
     public float getLength() {
-        return endPoint.distance(startPoint);
+        return length;
+    }
+
+    // ---- allocation-free geometry, for the per-frame rail check ----
+
+    public float getStartX() { return startX; }
+    public float getStartZ() { return startZ; }
+    public float getEndX() { return endX; }
+    public float getEndZ() { return endZ; }
+    public float getDirX() { return dirX; }
+    public float getDirZ() { return dirZ; }
+    public float getRightX() { return rightX; }
+    public float getRightZ() { return rightZ; }
+    public float getCorridorHalfWidth() { return corridorHalfWidth; }
+    public float getMinX() { return minX; }
+    public float getMinZ() { return minZ; }
+    public float getMaxX() { return maxX; }
+    public float getMaxZ() { return maxZ; }
+
+    /** Fraction 0..1 along the segment of the point closest to (px, pz). */
+    public float closestT(float px, float pz) {
+        float t = ((px - startX) * deltaX + (pz - startZ) * deltaZ) * invLengthSq;
+        return t < 0f ? 0f : (t > 1f ? 1f : t);
+    }
+
+    public float pointXAt(float t) { return startX + deltaX * t; }
+    public float pointZAt(float t) { return startZ + deltaZ * t; }
+
+    /** Squared XZ distance from (px, pz) to the point a fraction t along the segment. */
+    public float distanceSqAt(float px, float pz, float t) {
+        float dx = px - (startX + deltaX * t);
+        float dz = pz - (startZ + deltaZ * t);
+        return dx * dx + dz * dz;
+    }
+
+    /** Squared XZ distance from (px, pz) to the nearer of the two end points. */
+    public float endpointDistanceSq(float px, float pz) {
+        float ax = px - startX, az = pz - startZ;
+        float bx = px - endX, bz = pz - endZ;
+        return Math.min(ax * ax + az * az, bx * bx + bz * bz);
+    }
+
+    /** True if (px, pz) is within margin of the segment's bounding box. */
+    public boolean boundsContain(float px, float pz, float margin) {
+        return px >= minX - margin && px <= maxX + margin && pz >= minZ - margin && pz <= maxZ + margin;
     }
 
     public RoadSegment getOriginalSegment() {
         return originalSegment;
     }
 
+    /**
+     * {lat, lon} of the point a fraction t (0..1) along this segment, or null if the
+     * segment doesn't know its frame.
+     */
+    public double[] geoAt(float t) {
+        if (plane == null) return null;
+        double east = startPoint.x + (endPoint.x - startPoint.x) * (double) t;
+        double north = startPoint.z + (endPoint.z - startPoint.z) * (double) t;
+        return plane.toGeodetic(east, north);
+    }
+
     @Override
     public String toString() {
         return "PhysicsRoadSegment{" +
@@ -0,0 +1,216 @@
+package group7.capstone.technicalsubsystem;
+
+/**
+ * Simplifies a projected road polyline before it is turned into physics segments.
+ *
+ * Snap-to-roads with interpolation returns a point every few metres, mostly on straight
+ * lines. Douglas-Peucker drops every point that lies within the lateral tolerance of the
+ * line between the points it keeps. Straight spans are also cut at the last point within
+ * maxSegmentMeters, so segments stay short enough for the rail check's neighbour search
+ * and grid. Kept points are always original points.
+ *
+ * With a resample spacing set, spans that bend (at either end) are replaced by a
+ * Catmull-Rom curve through the kept points, sampled at roughly that spacing. Straight
+ * spans are left as one segment.
+ */
+public final class PolylineSimplifier {
+
+    /** Default tolerance as a fraction of the lane width; well inside the corridor slack. */
+    public static final float TOLERANCE_LANE_FRACTION = 0.1f;
+    public static final float DEFAULT_MAX_SEGMENT_METERS = 50f;
+
+    // spans turning less than this at both ends are not resampled
+    private static final float RESAMPLE_MIN_TURN_COS = (float) Math.cos(Math.toRadians(5.0));
+
+    private final float toleranceMeters;
+    private final float maxSegmentMeters;
+    private final float resampleSpacingMeters;
+
+    /**
+     * @param toleranceMeters       max lateral distance of a dropped point from the simplified line
+     * @param maxSegmentMeters      straight spans longer than this are cut at an interior point, if there is one
+     * @param resampleSpacingMeters spline sample spacing on curves, or 0 for no resampling
+     */
+    public PolylineSimplifier(float toleranceMeters, float maxSegmentMeters, float resampleSpacingMeters) {
+        if (toleranceMeters < 0f) throw new IllegalArgumentException("toleranceMeters must be >= 0");
+        if (maxSegmentMeters <= 0f) throw new IllegalArgumentException("maxSegmentMeters must be > 0");
+        if (resampleSpacingMeters < 0f) throw new IllegalArgumentException("resampleSpacingMeters must be >= 0");
+        this.toleranceMeters = toleranceMeters;
+        this.maxSegmentMeters = maxSegmentMeters;
+        this.resampleSpacingMeters = resampleSpacingMeters;
+    }
+
+    /** Tolerance tied to the lane width, default segment cap, no resampling. */
+    public static PolylineSimplifier forLaneWidth(float laneWidthMeters) {
+        if (laneWidthMeters <= 0f) throw new IllegalArgumentException("laneWidthMeters must be > 0");
+        return new PolylineSimplifier(laneWidthMeters * TOLERANCE_LANE_FRACTION, DEFAULT_MAX_SEGMENT_METERS, 0f);
+    }
+
+    public float getToleranceMeters() { return toleranceMeters; }
+    public float getMaxSegmentMeters() { return maxSegmentMeters; }
+    public float getResampleSpacingMeters() { return resampleSpacingMeters; }
+
+    /** Simplified points; source[i] is the index of the input point each one comes from (or follows). */
+    public static final class Polyline {
+        public final float[] x;
+        public final float[] z;
+        public final int[] source;
+        public final int size;
+
+        Polyline(float[] x, float[] z, int[] source, int size) {
+            this.x = x;
+            this.z = z;
+            this.source = source;
+            this.size = size;
+        }
+    }
+
+    public Polyline simplify(float[] x, float[] z, int n) {
+        if (n <= 2) {
+            int[] source = new int[n];
+            for (int i = 0; i < n; i++) source[i] = i;
+            return new Polyline(x.clone(), z.clone(), source, n);
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+
+        // iterative Douglas-Peucker; the stack holds [first, last] spans still to check
+        int[] stack = new int[2 * n + 4];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        float tol2 = toleranceMeters * toleranceMeters;
+        float maxLen2 = maxSegmentMeters * maxSegmentMeters;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            if (last - first < 2) continue;
+
+            int split = -1;
+            float worst = -1f;
+            for (int i = first + 1; i < last; i++) {
+                float d2 = distanceSqToSpan(x[i], z[i], x[first], z[first], x[last], z[last]);
+                if (d2 > worst) {
+                    worst = d2;
+                    split = i;
+                }
+            }
+
+            boolean tooFar = worst > tol2;
+            if (!tooFar) {
+                float dx = x[last] - x[first];
+                float dz = z[last] - z[first];
+                if (dx * dx + dz * dz <= maxLen2) continue;
+
+                // straight but too long: end the span at the last point within the cap
+                split = first + 1;
+                while (split + 1 < last) {
+                    float sx = x[split + 1] - x[first];
+                    float sz = z[split + 1] - z[first];
+                    if (sx * sx + sz * sz > maxLen2) break;
+                    split++;
+                }
+            }
+
+            keep[split] = true;
+            stack[top++] = first;
+            stack[top++] = split;
+            stack[top++] = split;
+            stack[top++] = last;
+        }
+
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+
+        float[] kx = new float[kept];
+        float[] kz = new float[kept];
+        int[] ks = new int[kept];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            kx[j] = x[i];
+            kz[j] = z[i];
+            ks[j] = i;
+            j++;
+        }
+
+        Polyline simplified = new Polyline(kx, kz, ks, kept);
+        return resampleSpacingMeters > 0f ? resample(simplified) : simplified;
+    }
+
+    private Polyline resample(Polyline p) {
+        int n = p.size;
+        if (n < 3) return p;
+
+        // size the output for the worst case: every span subdivided
+        int capacity = 1;
+        int[] pieces = new int[n - 1];
+        for (int k = 0; k < n - 1; k++) {
+            pieces[k] = 1;
+            if (bends(p, k) || bends(p, k + 1)) {
+                float len = (float) Math.hypot(p.x[k + 1] - p.x[k], p.z[k + 1] - p.z[k]);
+                pieces[k] = Math.max(1, (int) Math.ceil(len / resampleSpacingMeters));
+            }
+            capacity += pieces[k];
+        }
+
+        float[] ox = new float[capacity];
+        float[] oz = new float[capacity];
+        int[] os = new int[capacity];
+        int m = 0;
+        ox[m] = p.x[0];
+        oz[m] = p.z[0];
+        os[m] = p.source[0];
+        m++;
+
+        for (int k = 0; k < n - 1; k++) {
+            int k0 = Math.max(0, k - 1);
+            int k3 = Math.min(n - 1, k + 2);
+            for (int s = 1; s < pieces[k]; s++) {
+                float t = (float) s / pieces[k];
+                ox[m] = catmullRom(p.x[k0], p.x[k], p.x[k + 1], p.x[k3], t);
+                oz[m] = catmullRom(p.z[k0], p.z[k], p.z[k + 1], p.z[k3], t);
+                os[m] = p.source[k];
+                m++;
+            }
+            ox[m] = p.x[k + 1];
+            oz[m] = p.z[k + 1];
+            os[m] = p.source[k + 1];
+            m++;
+        }
+        return new Polyline(ox, oz, os, m);
+    }
+
+    // does the polyline turn at point k by more than the resample threshold?
+    private static boolean bends(Polyline p, int k) {
+        if (k <= 0 || k >= p.size - 1) return false;
+        float ax = p.x[k] - p.x[k - 1], az = p.z[k] - p.z[k - 1];
+        float bx = p.x[k + 1] - p.x[k], bz = p.z[k + 1] - p.z[k];
+        float la = (float) Math.sqrt(ax * ax + az * az);
+        float lb = (float) Math.sqrt(bx * bx + bz * bz);
+        if (la < 1e-6f || lb < 1e-6f) return false;
+        return (ax * bx + az * bz) / (la * lb) < RESAMPLE_MIN_TURN_COS;
+    }
+
+    private static float catmullRom(float p0, float p1, float p2, float p3, float t) {
+        float t2 = t * t;
+        float t3 = t2 * t;
+        return 0.5f * (2f * p1
+                + (-p0 + p2) * t
+                + (2f * p0 - 5f * p1 + 4f * p2 - p3) * t2
+                + (-p0 + 3f * p1 - 3f * p2 + p3) * t3);
+    }
+
+    private static float distanceSqToSpan(float px, float pz, float ax, float az, float bx, float bz) {
+        float dx = bx - ax;
+        float dz = bz - az;
+        float lenSq = dx * dx + dz * dz;
+        float t = lenSq < 1e-12f ? 0f : ((px - ax) * dx + (pz - az) * dz) / lenSq;
+        t = Math.max(0f, Math.min(1f, t));
+        float cx = ax + dx * t - px;
+        float cz = az + dz * t - pz;
+        return cx * cx + cz * cz;
+    }
+}
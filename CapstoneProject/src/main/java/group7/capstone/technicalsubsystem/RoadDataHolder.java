@@ -1,91 +1,40 @@
 package group7.capstone.technicalsubsystem;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
- * Singleton store for the current road polyline geo points (technicalsubsystem.RoadSegment).
+ * Read-only view of the geo points of one route (technicalsubsystem.RoadSegment).
  *
- * Key fixes vs your original:
- *  - getRoadList() does NOT leak the internal mutable ArrayList
- *  - removeRoadData() returns boolean (so you know if it actually removed)
- *  - helper methods for setting/replacing the whole road safely
+ * The points live in the RouteStore the road pipeline owns; this class only reads the
+ * store's latest snapshot, so it never holds a second copy of the road. Each pipeline
+ * has its own store and view (see RoadPipelineController.getRoadDataHolder()), so
+ * several routes can exist side by side.
  */
 public final class RoadDataHolder {
 
-    private static volatile RoadDataHolder instance;
+    private final RouteStore store;
 
-    // Internal mutable storage (do NOT expose directly)
-    private final ArrayList<RoadSegment> roadList;
-
-    private RoadDataHolder() {
-        this.roadList = new ArrayList<>();
-    }
-
-    public static RoadDataHolder getInstance() {
-        RoadDataHolder local = instance;
-        if (local == null) {
-            synchronized (RoadDataHolder.class) {
-                local = instance;
-                if (local == null) {
-                    local = new RoadDataHolder();
-                    instance = local;
-                }
-            }
-        }
-        return local;
-    }
-
-    /** Adds a single geo point. */
-    public synchronized void addRoadData(RoadSegment road) {
-        if (road == null) return;
-        roadList.add(road);
-    }
-
-    /** Removes a point. Returns true if it was present and removed. */
-    public synchronized boolean removeRoadData(RoadSegment road) {
-        if (road == null) return false;
-        return roadList.remove(road);
-    }
-
-    /**
-     * Clears the current road and returns a copy of what was stored.
-     * (Useful for debugging or undo.)
-     */
-    public synchronized ArrayList<RoadSegment> emptyRoad() {
-        ArrayList<RoadSegment> oldRoads = new ArrayList<>(roadList);
-        roadList.clear();
-        return oldRoads;
-    }
-
-    /**
-     * Replace the entire road with the provided points.
-     * This avoids partially-updated lists when rebuilding.
-     */
-    public synchronized void setRoad(List<RoadSegment> points) {
-        roadList.clear();
-        if (points == null) return;
-        for (RoadSegment p : points) {
-            if (p != null) roadList.add(p);
-        }
+    public RoadDataHolder(RouteStore store) {
+        if (store == null) throw new IllegalArgumentException("store cannot be null");
+        this.store = store;
     }
 
     /** Returns a COPY so callers cannot mutate internal state. */
-    public synchronized ArrayList<RoadSegment> getRoadList() {
-        return new ArrayList<>(roadList);
+    public ArrayList<RoadSegment> getRoadList() {
+        return new ArrayList<>(store.getSnapshot().getGeoPoints());
     }
 
-    /** Read-only view copy */
-    public synchronized List<RoadSegment> getRoadListReadOnly() {
-        return Collections.unmodifiableList(new ArrayList<>(roadList));
+    /** Unmodifiable points of the current snapshot; no copy. */
+    public List<RoadSegment> getRoadListReadOnly() {
+        return store.getSnapshot().getGeoPoints();
     }
 
-    public synchronized int size() {
-        return roadList.size();
+    public int size() {
+        return store.getSnapshot().getGeoPointCount();
     }
 
-    public synchronized boolean isEmpty() {
-        return roadList.isEmpty();
+    public boolean isEmpty() {
+        return size() == 0;
     }
-}
\ No newline at end of file
+}
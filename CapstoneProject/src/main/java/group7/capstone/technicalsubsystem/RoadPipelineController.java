@@ -1,24 +1,58 @@
 package group7.capstone.technicalsubsystem;
 
+import com.jme3.math.Vector3f;
 import group7.capstone.APIController.APIResponseDomain;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
+/**
+ * Turns snapped road points into physics segments for the car.
+ *
+ * All segments share one local origin, fixed at the first point of the route, so
+ * appended road only needs its new segments converted. With a retain distance set,
+ * trimBehind() retires road far behind the car (sliding window), so a long drive
+ * doesn't keep every point and segment it has ever seen. rebaseOrigin() moves the
+ * origin (floating origin), so coordinates stay small enough for float precision.
+ * With a simplifier set, near-collinear points are dropped (and curves optionally
+ * resampled) before segments are built, so the route has far fewer segments.
+ *
+ * The route itself lives in a RouteStore owned by this pipeline: every change is one
+ * bulk replace/append/trim on the store, which publishes an immutable RouteSnapshot.
+ * Readers only touch the snapshot, so they never lock or copy. RoadDataHolder is a
+ * read-only view onto the same store; nothing is kept twice.
+ */
 public final class RoadPipelineController {
 
+    private final RouteStore store;
     private final RoadDataHolder roadDataHolder;
 
-    private final List<RoadSegment> geoPoints = new ArrayList<>();
-    private final List<PhysicsRoadSegment> physicsSegments = new ArrayList<>();
-
     private int defaultLaneCount;
     private float defaultLaneWidthMeters;
 
+    // local origin of every physics segment; moves when a new route is started or on a rebase
+    private boolean hasOrigin = false;
+    private double originLat;
+    private double originLon;
+
+    // sliding window: road further than this behind the car is retired (<= 0 keeps all)
+    private float retainBehindMeters = 0f;
+    private RouteHistory history;
+    private long retiredSegments = 0;
+
+    // geometry simplification before segment conversion (null converts every point pair)
+    private PolylineSimplifier simplifier;
+    private long convertedPoints = 0;
+    private long builtSegments = 0;
+
     public RoadPipelineController(int defaultLaneCount, float defaultLaneWidthMeters) {
-        this.roadDataHolder = RoadDataHolder.getInstance();
+        this(new RouteStore(), defaultLaneCount, defaultLaneWidthMeters);
+    }
+
+    public RoadPipelineController(RouteStore store, int defaultLaneCount, float defaultLaneWidthMeters) {
+        this.store = Objects.requireNonNull(store, "store cannot be null");
+        this.roadDataHolder = new RoadDataHolder(store);
         this.defaultLaneCount = defaultLaneCount;
         this.defaultLaneWidthMeters = defaultLaneWidthMeters;
     }
@@ -31,38 +65,21 @@ public final class RoadPipelineController {
 
     public synchronized void runFromSnappedRoad(group7.capstone.caching.RoadSegment snappedRoad) {
         Objects.requireNonNull(snappedRoad, "snappedRoad cannot be null");
-
-        clearLocalOutputs();
-        roadDataHolder.emptyRoad();
-
-        List<RoadSegment> convertedGeo = adaptSnappedToGeoPoints(snappedRoad);
-
-        for (RoadSegment p : convertedGeo) {
-            roadDataHolder.addRoadData(p);
-            geoPoints.add(p);
-        }
-
-        rebuildPhysicsSegmentsFromAllGeo();
+        replaceRoute(adaptSnappedToGeoPoints(snappedRoad));
     }
 
     public synchronized void runFromGeoPoints(List<RoadSegment> geoPointsInput) {
-        clearLocalOutputs();
-        roadDataHolder.emptyRoad();
-
-        if (geoPointsInput == null || geoPointsInput.size() < 2) return;
-
-        for (RoadSegment p : geoPointsInput) {
-            if (p == null) continue;
-            roadDataHolder.addRoadData(p);
-            geoPoints.add(p);
+        if (geoPointsInput == null || geoPointsInput.size() < 2) {
+            store.clear();
+            return;
         }
-
-        rebuildPhysicsSegmentsFromAllGeo();
+        replaceRoute(geoPointsInput);
     }
 
     /**
      * Append more road points (from API) to the current road.
-     * Rebuilds physics segments after appending.
+     * Only the segments between the old last point and the new points are converted;
+     * the existing ones keep their coordinates.
      */
     public synchronized void appendFromApiResponse(APIResponseDomain response) {
         Objects.requireNonNull(response, "API response cannot be null");
@@ -72,6 +89,8 @@ public final class RoadPipelineController {
 
         if (newGeo == null || newGeo.size() < 2) return;
 
+        List<RoadSegment> geoPoints = store.getSnapshot().getGeoPoints();
+
         // If first new point duplicates last old point, drop it
         if (!geoPoints.isEmpty() && !newGeo.isEmpty()) {
             RoadSegment last = geoPoints.get(geoPoints.size() - 1);
@@ -81,13 +100,132 @@ public final class RoadPipelineController {
             }
         }
 
+        if (!hasOrigin) {
+            setOrigin(newGeo);
+        }
+
+        // the old last point starts the first new segment
+        List<RoadSegment> toConvert = new ArrayList<>(newGeo.size() + 1);
+        if (!geoPoints.isEmpty()) {
+            toConvert.add(geoPoints.get(geoPoints.size() - 1));
+        }
         for (RoadSegment p : newGeo) {
-            if (p == null) continue;
-            roadDataHolder.addRoadData(p);
-            geoPoints.add(p);
+            if (p != null) toConvert.add(p);
         }
 
-        rebuildPhysicsSegmentsFromAllGeo();
+        store.append(newGeo, convert(toConvert));
+    }
+
+    /**
+     * Retires the road more than the retain distance behind the car. Segments are only
+     * removed from the front, so the indices of the remaining ones all shift down by the
+     * returned count; callers must shift any index they hold (see SoftRailFollower.shiftIndex).
+     *
+     * @param currentSegmentIndex the segment the car is on, or -1 if unknown (nothing is trimmed)
+     * @return how many physics segments were removed from the front; 0 if the segments
+     *         can't be matched to the geo points
+     */
+    public synchronized int trimBehind(int currentSegmentIndex) {
+        if (retainBehindMeters <= 0f) return 0;
+
+        RouteSnapshot route = store.getSnapshot();
+        List<RoadSegment> geoPoints = route.getGeoPoints();
+        List<PhysicsRoadSegment> physicsSegments = route.getPhysicsSegments();
+        if (currentSegmentIndex <= 0 || currentSegmentIndex >= physicsSegments.size()) return 0;
+
+        // keep whole segments back to retainBehindMeters behind the current one
+        int cut = 0;
+        float behind = 0f;
+        for (int i = currentSegmentIndex - 1; i >= 0; i--) {
+            behind += physicsSegments.get(i).getLength();
+            if (behind >= retainBehindMeters) {
+                cut = i;
+                break;
+            }
+        }
+        if (cut <= 0) return 0;
+
+        // geo points before the first kept segment's start point go too
+        RoadSegment firstKept = physicsSegments.get(cut).getOriginalSegment();
+        int geoCut = 0;
+        while (geoCut < geoPoints.size() && geoPoints.get(geoCut) != firstKept) {
+            geoCut++;
+        }
+        // the segments don't come from these geo points: trimming only one list would
+        // leave the two out of step, so trim neither
+        if (geoCut == geoPoints.size()) return 0;
+
+        if (history != null) {
+            for (int i = 0; i < geoCut; i++) {
+                RoadSegment p = geoPoints.get(i);
+                history.add(p.getLatitude(), p.getLongitude());
+            }
+        }
+
+        store.removeFirst(geoCut, cut);
+        retiredSegments += cut;
+        return cut;
+    }
+
+    /**
+     * Moves the local origin to the given point and reprojects the current segments into
+     * the new frame. The geo points and segments are unchanged apart from their local
+     * coordinates, so segment indices stay valid; everything that holds a local position
+     * (the car) has to be moved into the new frame by the caller.
+     */
+    public synchronized void rebaseOrigin(double lat, double lon) {
+        originLat = lat;
+        originLon = lon;
+        hasOrigin = true;
+        store.replaceSegments(converter().reproject(store.getSnapshot().getPhysicsSegments()));
+    }
+
+    /** {lat, lon} of a local position in the current frame. */
+    public synchronized double[] toGeo(Vector3f local) {
+        return converter().toGeo(local.x, local.z);
+    }
+
+    /**
+     * Enables the sliding window: road further than this behind the car is retired by
+     * trimBehind(). 0 keeps the whole route.
+     */
+    public synchronized void setRetainBehindMeters(float meters) {
+        if (meters < 0f) throw new IllegalArgumentException("meters must be >= 0");
+        this.retainBehindMeters = meters;
+    }
+
+    /** Where retired geo points are kept, or null to just drop them. */
+    public synchronized void setHistory(RouteHistory history) {
+        this.history = history;
+    }
+
+    public synchronized RouteHistory getHistory() {
+        return history;
+    }
+
+    public synchronized long getRetiredSegments() {
+        return retiredSegments;
+    }
+
+    /**
+     * Simplifies the geometry of road converted from now on; null turns it off. The
+     * current segments are kept as they are until the route is rebuilt.
+     */
+    public synchronized void setSimplifier(PolylineSimplifier simplifier) {
+        this.simplifier = simplifier;
+    }
+
+    public synchronized PolylineSimplifier getSimplifier() {
+        return simplifier;
+    }
+
+    /** Geo points converted so far, and the segments built from them. */
+    public synchronized long getConvertedPoints() {
+        return convertedPoints;
+    }
+
+    public synchronized long getBuiltSegments() {
+        return builtSegments;
     }
 
     private boolean almostSameLatLon(RoadSegment a, RoadSegment b) {
@@ -96,12 +234,28 @@ public final class RoadPipelineController {
         return dLat < 1e-6 && dLon < 1e-6;
     }
 
-    public synchronized List<RoadSegment> getGeoPoints() {
-        return Collections.unmodifiableList(new ArrayList<>(geoPoints));
+    /** The latest published route; lock-free, and consistent between its two lists. */
+    public RouteSnapshot getSnapshot() {
+        return store.getSnapshot();
+    }
+
+    /** Unmodifiable geo points of the latest snapshot (not a copy). */
+    public List<RoadSegment> getGeoPoints() {
+        return store.getSnapshot().getGeoPoints();
     }
 
-    public synchronized List<PhysicsRoadSegment> getPhysicsSegments() {
-        return Collections.unmodifiableList(new ArrayList<>(physicsSegments));
+    /** Unmodifiable physics segments of the latest snapshot (not a copy). */
+    public List<PhysicsRoadSegment> getPhysicsSegments() {
+        return store.getSnapshot().getPhysicsSegments();
+    }
+
+    public RouteStore getRouteStore() {
+        return store;
+    }
+
+    /** Read-only view of this pipeline's geo points. */
+    public RoadDataHolder getRoadDataHolder() {
+        return roadDataHolder;
     }
 
     public synchronized void setDefaults(int laneCount, float laneWidthMeters) {
@@ -112,25 +266,43 @@ public final class RoadPipelineController {
     }
 
     public synchronized void clearAll() {
-        clearLocalOutputs();
-        roadDataHolder.emptyRoad();
+        store.clear();
+        hasOrigin = false;
     }
 
     // ---- internals ----
 
-    private void clearLocalOutputs() {
-        geoPoints.clear();
-        physicsSegments.clear();
+    // new route: fresh origin, every point converted, one bulk replace
+    private void replaceRoute(List<RoadSegment> points) {
+        List<RoadSegment> route = new ArrayList<>(points.size());
+        for (RoadSegment p : points) {
+            if (p != null) route.add(p);
+        }
+        setOrigin(route);
+        List<PhysicsRoadSegment> segments = route.size() < 2 ? List.of() : convert(route);
+        store.replace(route, segments);
     }
 
-    private void rebuildPhysicsSegmentsFromAllGeo() {
-        physicsSegments.clear();
-        if (geoPoints.size() < 2) return;
+    private List<PhysicsRoadSegment> convert(List<RoadSegment> points) {
+        List<PhysicsRoadSegment> segments = converter().toPhysicsSegments(points, simplifier);
+        convertedPoints += points.size();
+        builtSegments += segments.size();
+        return segments;
+    }
 
-        RoadSegmentConverter converter =
-                RoadSegmentConverter.fromFirstPoint(geoPoints, defaultLaneCount, defaultLaneWidthMeters);
+    private void setOrigin(List<RoadSegment> points) {
+        hasOrigin = false;
+        for (RoadSegment p : points) {
+            if (p == null) continue;
+            originLat = p.getLatitude();
+            originLon = p.getLongitude();
+            hasOrigin = true;
+            return;
+        }
+    }
 
-        physicsSegments.addAll(converter.toPhysicsSegments(geoPoints));
+    private RoadSegmentConverter converter() {
+        return new RoadSegmentConverter(originLat, originLon, defaultLaneCount, defaultLaneWidthMeters);
     }
 
     private List<RoadSegment> adaptSnappedToGeoPoints(group7.capstone.caching.RoadSegment snappedRoad) {
@@ -7,51 +7,98 @@ import java.util.List;
 
 public class RoadSegmentConverter {
 
-    private static final double METRES_PER_DEG_LAT = 111_320.0;
-
-    private final double originLat;
-    private final double originLon;
+    private final LocalTangentPlane plane;
 
     private final int defaultLaneCount;
     private final float defaultLaneWidthMeters;
 
     public RoadSegmentConverter(double originLat, double originLon, int defaultLaneCount, float defaultLaneWidthMeters) {
-        this.originLat = originLat;
-        this.originLon = originLon;
+        this.plane = new LocalTangentPlane(originLat, originLon);
         this.defaultLaneCount = defaultLaneCount;
         this.defaultLaneWidthMeters = defaultLaneWidthMeters;
     }
 
     public List<PhysicsRoadSegment> toPhysicsSegments(List<RoadSegment> geoPoints) {
+        return toPhysicsSegments(geoPoints, null);
+    }
+
+    /**
+     * Same, with the projected points run through the simplifier first (null keeps every
+     * point). Each segment's original segment is the source point it starts at or after.
+     */
+    public List<PhysicsRoadSegment> toPhysicsSegments(List<RoadSegment> geoPoints, PolylineSimplifier simplifier) {
         List<PhysicsRoadSegment> out = new ArrayList<>();
         if (geoPoints == null || geoPoints.size() < 2) return out;
 
-        for (int i = 0; i < geoPoints.size() - 1; i++) {
-            RoadSegment a = geoPoints.get(i);
-            RoadSegment b = geoPoints.get(i + 1);
+        // project every point in one batch, then pair them up
+        int n = geoPoints.size();
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = geoPoints.get(i).getLatitude();
+            lons[i] = geoPoints.get(i).getLongitude();
+        }
+        float[] east = new float[n];
+        float[] north = new float[n];
+        plane.toLocal(lats, lons, n, east, north);
+
+        int[] source = null;
+        if (simplifier != null) {
+            PolylineSimplifier.Polyline simplified = simplifier.simplify(east, north, n);
+            east = simplified.x;
+            north = simplified.z;
+            source = simplified.source;
+            n = simplified.size;
+        }
 
-            Vector3f start = toLocalMetres(a.getLatitude(), a.getLongitude());
-            Vector3f end   = toLocalMetres(b.getLatitude(), b.getLongitude());
+        for (int i = 0; i < n - 1; i++) {
+            float dx = east[i + 1] - east[i];
+            float dz = north[i + 1] - north[i];
+            if (dx * dx + dz * dz < 0.05f * 0.05f) continue;
 
-            if (start.distance(end) < 0.05f) continue;
+            Vector3f start = new Vector3f(east[i], 0f, north[i]);
+            Vector3f end   = new Vector3f(east[i + 1], 0f, north[i + 1]);
 
             // MIN CHANGE: pass the source segment (using "a" as the origin)
+            RoadSegment original = geoPoints.get(source == null ? i : source[i]);
             PhysicsRoadSegment seg =
-                    new PhysicsRoadSegment(start, end, defaultLaneCount, defaultLaneWidthMeters, a);
+                    new PhysicsRoadSegment(start, end, defaultLaneCount, defaultLaneWidthMeters, original, plane);
 
             out.add(seg);
         }
         return out;
     }
 
-    private Vector3f toLocalMetres(double lat, double lon) {
-        double dLat = lat - originLat;
-        double dLon = lon - originLon;
+    /**
+     * The same segments, one for one, moved into this converter's frame through their
+     * geodetic endpoints. Used on a rebase, so segment indices stay valid; converting the
+     * geo points again could simplify them into a different set of segments.
+     */
+    public List<PhysicsRoadSegment> reproject(List<PhysicsRoadSegment> segments) {
+        List<PhysicsRoadSegment> out = new ArrayList<>(segments.size());
+        double[] local = new double[2];
+        for (PhysicsRoadSegment seg : segments) {
+            double[] a = seg.geoAt(0f);
+            double[] b = seg.geoAt(1f);
+            if (a == null || b == null) {
+                throw new IllegalStateException("segment has no frame to reproject from");
+            }
+            plane.toLocal(a[0], a[1], local);
+            Vector3f start = new Vector3f((float) local[0], 0f, (float) local[1]);
+            plane.toLocal(b[0], b[1], local);
+            Vector3f end = new Vector3f((float) local[0], 0f, (float) local[1]);
+            out.add(new PhysicsRoadSegment(start, end, seg.getLaneCount(), seg.getLaneWidth(), seg.getOriginalSegment(), plane));
+        }
+        return out;
+    }
 
-        double metresNorth = dLat * METRES_PER_DEG_LAT;
-        double metresEast  = dLon * METRES_PER_DEG_LAT * Math.cos(Math.toRadians(originLat));
+    /** Inverse of the local projection: {lat, lon} of a point in this converter's frame. */
+    public double[] toGeo(float x, float z) {
+        return plane.toGeodetic(x, z);
+    }
 
-        return new Vector3f((float) metresEast, 0f, (float) metresNorth);
+    public LocalTangentPlane getPlane() {
+        return plane;
     }
 
     public static RoadSegmentConverter fromFirstPoint(List<RoadSegment> geoPoints, int laneCount, float laneWidthMeters) {
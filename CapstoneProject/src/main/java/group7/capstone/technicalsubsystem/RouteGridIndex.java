@@ -0,0 +1,107 @@
+package group7.capstone.technicalsubsystem;
+
+import java.util.List;
+
+/**
+ * Uniform grid over a route's segments, so finding the segments near a point doesn't
+ * mean scanning the whole route.
+ *
+ * Each segment is registered in every cell its bounding box (grown by a margin) touches.
+ * Cells are stored CSR-style in two int arrays, and the segment indices in a cell are in
+ * ascending order, matching the order a linear scan would visit them. Queries allocate
+ * nothing. The cell size grows with the route's extent so the grid stays small.
+ */
+final class RouteGridIndex {
+
+    private static final float MIN_CELL_SIZE = 25f;
+    private static final int MAX_CELLS = 1 << 16;
+
+    private final float originX;
+    private final float originZ;
+    private final float cellSize;
+    private final float invCellSize;
+    private final int cols;
+    private final int rows;
+
+    private final int[] cellStart; // cells + 1 entries; cell c holds items[cellStart[c] .. cellStart[c+1])
+    private final int[] items;
+
+    RouteGridIndex(List<PhysicsRoadSegment> segments, float margin) {
+        float minX = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (PhysicsRoadSegment seg : segments) {
+            minX = Math.min(minX, seg.getMinX());
+            minZ = Math.min(minZ, seg.getMinZ());
+            maxX = Math.max(maxX, seg.getMaxX());
+            maxZ = Math.max(maxZ, seg.getMaxZ());
+        }
+        if (segments.isEmpty()) {
+            minX = minZ = maxX = maxZ = 0f;
+        }
+        minX -= margin;
+        minZ -= margin;
+        maxX += margin;
+        maxZ += margin;
+
+        float area = (maxX - minX) * (maxZ - minZ);
+        float size = Math.max(MIN_CELL_SIZE, (float) Math.sqrt(area / MAX_CELLS) * 1.01f);
+
+        this.originX = minX;
+        this.originZ = minZ;
+        this.cellSize = size;
+        this.invCellSize = 1f / size;
+        this.cols = Math.max(1, (int) Math.ceil((maxX - minX) * invCellSize));
+        this.rows = Math.max(1, (int) Math.ceil((maxZ - minZ) * invCellSize));
+
+        // count, prefix-sum, fill
+        int cells = cols * rows;
+        int[] counts = new int[cells + 1];
+        for (PhysicsRoadSegment seg : segments) {
+            forEachCell(seg, margin, (c) -> counts[c]++);
+        }
+        cellStart = new int[cells + 1];
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] = cellStart[c] + counts[c];
+        }
+        items = new int[cellStart[cells]];
+
+        int[] fill = new int[cells];
+        for (int i = 0; i < segments.size(); i++) {
+            final int index = i;
+            forEachCell(segments.get(i), margin, (c) -> items[cellStart[c] + fill[c]++] = index);
+        }
+    }
+
+    private interface CellVisitor {
+        void visit(int cell);
+    }
+
+    private void forEachCell(PhysicsRoadSegment seg, float margin, CellVisitor visitor) {
+        int c0 = clampCol((int) ((seg.getMinX() - margin - originX) * invCellSize));
+        int c1 = clampCol((int) ((seg.getMaxX() + margin - originX) * invCellSize));
+        int r0 = clampRow((int) ((seg.getMinZ() - margin - originZ) * invCellSize));
+        int r1 = clampRow((int) ((seg.getMaxZ() + margin - originZ) * invCellSize));
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                visitor.visit(r * cols + c);
+            }
+        }
+    }
+
+    private int clampCol(int c) { return Math.max(0, Math.min(cols - 1, c)); }
+    private int clampRow(int r) { return Math.max(0, Math.min(rows - 1, r)); }
+
+    /** Cell containing (x, z), or -1 if the point is outside the indexed area. */
+    int cellOf(float x, float z) {
+        float fx = (x - originX) * invCellSize;
+        float fz = (z - originZ) * invCellSize;
+        if (fx < 0f || fz < 0f || fx >= cols || fz >= rows) return -1;
+        return (int) fz * cols + (int) fx;
+    }
+
+    int start(int cell) { return cellStart[cell]; }
+    int end(int cell) { return cellStart[cell + 1]; }
+    int item(int k) { return items[k]; }
+
+    float getCellSize() { return cellSize; }
+}
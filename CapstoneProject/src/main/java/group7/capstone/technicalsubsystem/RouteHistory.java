@@ -0,0 +1,47 @@
+package group7.capstone.technicalsubsystem;
+
+import java.util.Arrays;
+
+/**
+ * Compact record of the geo points the car has already driven past.
+ *
+ * RoadPipelineController retires road that is far behind the car; if a history is
+ * attached, the retired points are kept here as packed lat/lon doubles (16 bytes per
+ * point instead of an object each), e.g. for a replay or a trip summary.
+ */
+public class RouteHistory {
+
+    private double[] latLon = new double[256];
+    private int size = 0;
+
+    public synchronized void add(double lat, double lon) {
+        if (2 * size + 2 > latLon.length) {
+            latLon = Arrays.copyOf(latLon, latLon.length * 2);
+        }
+        latLon[2 * size] = lat;
+        latLon[2 * size + 1] = lon;
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized double getLatitude(int i) {
+        checkIndex(i);
+        return latLon[2 * i];
+    }
+
+    public synchronized double getLongitude(int i) {
+        checkIndex(i);
+        return latLon[2 * i + 1];
+    }
+
+    public synchronized void clear() {
+        size = 0;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+    }
+}
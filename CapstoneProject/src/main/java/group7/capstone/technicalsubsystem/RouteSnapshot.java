@@ -0,0 +1,41 @@
+package group7.capstone.technicalsubsystem;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of the route at one point in time: the geo points and the physics
+ * segments built from them. RouteStore publishes a new snapshot after every change, so
+ * readers on any thread get a consistent pair of lists without locking or copying. The
+ * version goes up by one with every published snapshot.
+ */
+public final class RouteSnapshot {
+
+    public static final RouteSnapshot EMPTY =
+            new RouteSnapshot(0L, new RoadSegment[0], new PhysicsRoadSegment[0]);
+
+    private final long version;
+    private final List<RoadSegment> geoPoints;
+    private final List<PhysicsRoadSegment> physicsSegments;
+
+    // takes ownership of the arrays; RouteStore never touches them again
+    RouteSnapshot(long version, RoadSegment[] geoPoints, PhysicsRoadSegment[] physicsSegments) {
+        this.version = version;
+        this.geoPoints = Collections.unmodifiableList(Arrays.asList(geoPoints));
+        this.physicsSegments = Collections.unmodifiableList(Arrays.asList(physicsSegments));
+    }
+
+    public long getVersion() { return version; }
+
+    /** Unmodifiable; the same instance for the life of the snapshot. */
+    public List<RoadSegment> getGeoPoints() { return geoPoints; }
+
+    /** Unmodifiable; the same instance for the life of the snapshot. */
+    public List<PhysicsRoadSegment> getPhysicsSegments() { return physicsSegments; }
+
+    public int getGeoPointCount() { return geoPoints.size(); }
+    public int getSegmentCount() { return physicsSegments.size(); }
+
+    public boolean isEmpty() { return physicsSegments.isEmpty(); }
+}
@@ -0,0 +1,70 @@
+package group7.capstone.technicalsubsystem;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The single authoritative copy of one route: its geo points and physics segments.
+ *
+ * Writers change it only in bulk (replace, append, drop from the front), under the
+ * store's lock. Each change builds new arrays from the current snapshot plus the change
+ * and publishes them as the next RouteSnapshot, so the route is held once and readers
+ * never lock. Every vehicle or route gets its own store; nothing here is global.
+ */
+public final class RouteStore {
+
+    private volatile RouteSnapshot snapshot = RouteSnapshot.EMPTY;
+
+    public RouteSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /** Replaces the whole route. Null points are skipped. */
+    public synchronized void replace(List<RoadSegment> geoPoints, List<PhysicsRoadSegment> segments) {
+        publish(concat(new RoadSegment[0], geoPoints), concat(new PhysicsRoadSegment[0], segments));
+    }
+
+    /** Adds points and segments after the current ones. Null points are skipped. */
+    public synchronized void append(List<RoadSegment> geoPoints, List<PhysicsRoadSegment> segments) {
+        RouteSnapshot current = snapshot;
+        publish(concat(current.getGeoPoints().toArray(new RoadSegment[0]), geoPoints),
+                concat(current.getPhysicsSegments().toArray(new PhysicsRoadSegment[0]), segments));
+    }
+
+    /** Replaces the segments and keeps the geo points (e.g. after a change of frame). */
+    public synchronized void replaceSegments(List<PhysicsRoadSegment> segments) {
+        publish(snapshot.getGeoPoints().toArray(new RoadSegment[0]),
+                concat(new PhysicsRoadSegment[0], segments));
+    }
+
+    /** Drops the first geoCount points and the first segmentCount segments. */
+    public synchronized void removeFirst(int geoCount, int segmentCount) {
+        if (geoCount < 0 || segmentCount < 0) throw new IllegalArgumentException("counts must be >= 0");
+        if (geoCount == 0 && segmentCount == 0) return;
+
+        RouteSnapshot current = snapshot;
+        RoadSegment[] geo = current.getGeoPoints().toArray(new RoadSegment[0]);
+        PhysicsRoadSegment[] segs = current.getPhysicsSegments().toArray(new PhysicsRoadSegment[0]);
+        publish(Arrays.copyOfRange(geo, Math.min(geoCount, geo.length), geo.length),
+                Arrays.copyOfRange(segs, Math.min(segmentCount, segs.length), segs.length));
+    }
+
+    public synchronized void clear() {
+        publish(new RoadSegment[0], new PhysicsRoadSegment[0]);
+    }
+
+    private void publish(RoadSegment[] geo, PhysicsRoadSegment[] segments) {
+        snapshot = new RouteSnapshot(snapshot.getVersion() + 1, geo, segments);
+    }
+
+    // head followed by the non-null items of tail, in a new array
+    private static <T> T[] concat(T[] head, List<? extends T> tail) {
+        if (tail == null || tail.isEmpty()) return head;
+        T[] out = Arrays.copyOf(head, head.length + tail.size());
+        int n = head.length;
+        for (T item : tail) {
+            if (item != null) out[n++] = item;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,190 @@
+package group7.capstone.technicalsubsystem;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-step clock for the simulation loop.
+ *
+ * Real time is added to an accumulator and handed out as whole physics steps by
+ * advance(). When the loop falls behind, at most maxStepsPerFrame steps are run per
+ * frame and the rest is dropped (and counted), so a stall can't turn into a spiral of
+ * ever longer catch-up frames. What is left in the accumulator is getAlpha(), the
+ * fraction of a step the displayed state is behind real time, for interpolating
+ * between the previous and current physics state.
+ *
+ * waitForNextStep() parks until the next step is due and spins for the last stretch,
+ * since parking alone typically wakes up tens of microseconds late.
+ *
+ * The clock doesn't know about Swing or the car: the GUI runner calls it once per
+ * frame, and a headless runner can use headless(), whose time only moves when it
+ * waits, to run the same loop as fast as possible.
+ */
+public final class SimulationClock {
+
+    /** Source of time, and the way to wait for it. */
+    public interface Ticker {
+        long nanoTime();
+        void parkNanos(long nanos);
+
+        Ticker SYSTEM = new Ticker() {
+            @Override public long nanoTime() { return System.nanoTime(); }
+            @Override public void parkNanos(long nanos) { LockSupport.parkNanos(nanos); }
+        };
+    }
+
+    /**
+     * Time that only moves when someone waits on it or calls advance(). Nothing moves it
+     * while spinning, so use it with setSpinNanos(0), as headless() does.
+     */
+    public static final class ManualTicker implements Ticker {
+        private long now;
+
+        @Override public long nanoTime() { return now; }
+        @Override public void parkNanos(long nanos) { if (nanos > 0) now += nanos; }
+
+        public void advance(long nanos) {
+            if (nanos < 0) throw new IllegalArgumentException("nanos must be >= 0");
+            now += nanos;
+        }
+    }
+
+    public static final int DEFAULT_MAX_STEPS_PER_FRAME = 5;
+    private static final long DEFAULT_SPIN_NANOS = 200_000L;
+
+    private final Ticker ticker;
+    private final long stepNanos;
+    private final float stepSeconds;
+    private final int maxStepsPerFrame;
+    private long spinNanos = DEFAULT_SPIN_NANOS;
+
+    private boolean started = false;
+    private long lastNanos;
+    private long accumulatorNanos;
+    private long steps = 0;
+
+    // metrics
+    private long frames = 0;
+    private long overrunFrames = 0;
+    private long droppedSteps = 0;
+    private long maxLateNanos = 0;
+    private long totalLateNanos = 0;
+    private long waits = 0;
+
+    public SimulationClock(float stepSeconds) {
+        this(stepSeconds, DEFAULT_MAX_STEPS_PER_FRAME, Ticker.SYSTEM);
+    }
+
+    public SimulationClock(float stepSeconds, int maxStepsPerFrame, Ticker ticker) {
+        if (stepSeconds <= 0f) throw new IllegalArgumentException("stepSeconds must be > 0");
+        if (maxStepsPerFrame <= 0) throw new IllegalArgumentException("maxStepsPerFrame must be > 0");
+        if (ticker == null) throw new IllegalArgumentException("ticker cannot be null");
+        this.stepSeconds = stepSeconds;
+        this.stepNanos = Math.max(1L, Math.round(stepSeconds * 1_000_000_000.0));
+        this.maxStepsPerFrame = maxStepsPerFrame;
+        this.ticker = ticker;
+    }
+
+    /** Clock for runs without a display: no real waiting, every wait moves time forward. */
+    public static SimulationClock headless(float stepSeconds) {
+        SimulationClock clock = new SimulationClock(stepSeconds, DEFAULT_MAX_STEPS_PER_FRAME, new ManualTicker());
+        clock.setSpinNanos(0L);
+        return clock;
+    }
+
+    /** Last stretch before a step is due that is spun instead of parked; 0 always parks. */
+    public void setSpinNanos(long spinNanos) {
+        if (spinNanos < 0) throw new IllegalArgumentException("spinNanos must be >= 0");
+        this.spinNanos = spinNanos;
+    }
+
+    /** Starts counting real time from now. Called by advance() if it wasn't called before. */
+    public void start() {
+        lastNanos = ticker.nanoTime();
+        accumulatorNanos = 0L;
+        started = true;
+    }
+
+    /**
+     * Adds the real time since the last call and returns how many fixed steps to run now,
+     * at most maxStepsPerFrame. Steps beyond that are dropped and counted as an overrun.
+     */
+    public int advance() {
+        if (!started) start();
+
+        long now = ticker.nanoTime();
+        accumulatorNanos += Math.max(0L, now - lastNanos);
+        lastNanos = now;
+        frames++;
+
+        long due = accumulatorNanos / stepNanos;
+        if (due > maxStepsPerFrame) {
+            long dropped = due - maxStepsPerFrame;
+            overrunFrames++;
+            droppedSteps += dropped;
+            accumulatorNanos -= dropped * stepNanos;
+            due = maxStepsPerFrame;
+        }
+
+        accumulatorNanos -= due * stepNanos;
+        steps += due;
+        return (int) due;
+    }
+
+    /**
+     * Waits until the accumulator holds a whole step: parks for most of it, then spins.
+     * Returns at once if a step is already due.
+     */
+    public void waitForNextStep() {
+        if (!started) start();
+
+        long deadline = lastNanos + (stepNanos - accumulatorNanos);
+        long remaining;
+        while ((remaining = deadline - ticker.nanoTime()) > 0) {
+            if (remaining > spinNanos) {
+                ticker.parkNanos(remaining - spinNanos);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+
+        long late = -remaining;
+        waits++;
+        totalLateNanos += late;
+        maxLateNanos = Math.max(maxLateNanos, late);
+    }
+
+    /** Fraction (0..1) of a step between the last physics state and real time. */
+    public float getAlpha() {
+        return (float) accumulatorNanos / stepNanos;
+    }
+
+    /** Blends a value between the previous and the current physics step. */
+    public static float interpolate(float previous, float current, float alpha) {
+        return previous + (current - previous) * alpha;
+    }
+
+    public float getStepSeconds() { return stepSeconds; }
+    public long getStepNanos() { return stepNanos; }
+    public int getMaxStepsPerFrame() { return maxStepsPerFrame; }
+
+    /** Simulated time: steps run so far times the step length. */
+    public double getSimTime() { return steps * (double) stepSeconds; }
+
+    public long getSteps() { return steps; }
+    public long getFrames() { return frames; }
+    public long getOverrunFrames() { return overrunFrames; }
+    public long getDroppedSteps() { return droppedSteps; }
+    public long getMaxLateNanos() { return maxLateNanos; }
+
+    public long getAverageLateNanos() {
+        return waits == 0 ? 0L : totalLateNanos / waits;
+    }
+
+    public String getStats() {
+        return String.format(
+                "SimulationClock[steps=%d, frames=%d, overruns=%d, droppedSteps=%d, avgLate=%dus, maxLate=%dus]",
+                steps, frames, overrunFrames, droppedSteps,
+                getAverageLateNanos() / 1_000L, maxLateNanos / 1_000L
+        );
+    }
+}
@@ -10,205 +10,244 @@ import java.util.List;
  * - If not, returns nearest snap point + segment direction.
  * - Tracks current segment index + progress t (0..1) when on-road.
  *
+ * Search order: the current segment, then a few neighbours (mostly ahead in the
+ * direction the car has been moving along the route), then the segments in the car's
+ * grid cell. Only when all of those miss (off-road) is the whole route scanned, for
+ * the nearest snap point.
  */
 public class SoftRailFollower {
 
     private static final float CORNER_GRACE_RADIUS = 9.0f;
     private static final float CORNER_GRACE_RADIUS_SQ = CORNER_GRACE_RADIUS * CORNER_GRACE_RADIUS;
 
+    // neighbours checked before the grid: this many in the direction of travel, then back
+    private static final int AHEAD_WINDOW = 4;
+    private static final int BEHIND_WINDOW = 2;
+
     private PhysicsRoadSegment currentSegment = null;
     private int currentIndex = -1;
     private float currentT = 0f; // 0..1 along segment
 
+    // +1 while the segment index has been increasing, -1 while decreasing
+    private int travelDirection = 1;
+
+    // grid over the list it was built for; rebuilt when a different route list is passed in
+    private List<PhysicsRoadSegment> indexedRoute;
+    private RouteGridIndex grid;
+
+    private long windowHits = 0;
+    private long gridHits = 0;
+    private long fullScans = 0;
+
     public PhysicsRoadSegment getCurrentSegment() { return currentSegment; }
     public int getCurrentIndex() { return currentIndex; }
     public float getCurrentT() { return currentT; }
+    public long getWindowHits() { return windowHits; }
+    public long getGridHits() { return gridHits; }
+    public long getFullScans() { return fullScans; }
+
+    /**
+     * Keeps the tracked index pointing at the same segment after the first `removed`
+     * segments were dropped from the route. If the current segment itself was dropped,
+     * the next check does a full scan.
+     */
+    public void shiftIndex(int removed) {
+        if (removed <= 0 || currentIndex < 0) return;
+        currentIndex -= removed;
+        if (currentIndex < 0) {
+            currentIndex = -1;
+            currentSegment = null;
+            currentT = 0f;
+        }
+    }
 
+    /**
+     * Outcome of a rail check. Mutable and owned by the caller, who passes the same
+     * instance to every check, so a steady-state tick allocates nothing. The vectors are
+     * only meaningful while hasSnapPoint() is true (off-road with a road to snap to).
+     */
     public static class Result {
-        public final boolean offRoad;
-        public final Vector3f snapPoint;     // teleport target (XZ snapped, Y preserved)
-        public final Vector3f forwardXZ;     // segment direction (unit XZ)
-        public final Vector3f rightXZ;       // perpendicular to segment direction (unit XZ)
-        public final float distanceMeters;   // lateral distance to corridor centreline
-
-        public final int segmentIndex;       // -1 if offRoad
-        public final float tOnSegment;       // 0..1 if onRoad
-
-        Result(boolean offRoad,
-               Vector3f snapPoint,
-               Vector3f forwardXZ,
-               Vector3f rightXZ,
-               float distanceMeters,
-               int segmentIndex,
-               float tOnSegment) {
-            this.offRoad = offRoad;
-            this.snapPoint = snapPoint;
-            this.forwardXZ = forwardXZ;
-            this.rightXZ = rightXZ;
+        public boolean offRoad;
+        public final Vector3f snapPoint = new Vector3f();   // teleport target (XZ snapped, Y preserved)
+        public final Vector3f forwardXZ = new Vector3f();   // segment direction (unit XZ)
+        public final Vector3f rightXZ = new Vector3f();     // perpendicular to segment direction (unit XZ)
+        public float distanceMeters;   // lateral distance to corridor centreline
+
+        public int segmentIndex = -1;  // -1 if offRoad
+        public float tOnSegment;       // 0..1 if onRoad
+
+        private boolean hasSnapPoint;
+
+        public boolean hasSnapPoint() { return hasSnapPoint; }
+
+        /** No route: on-road, nowhere to snap. */
+        public Result clear() {
+            offRoad = false;
+            hasSnapPoint = false;
+            distanceMeters = 0f;
+            segmentIndex = -1;
+            tOnSegment = 0f;
+            return this;
+        }
+
+        Result setOnRoad(float distanceMeters, int segmentIndex, float tOnSegment) {
+            this.offRoad = false;
+            this.hasSnapPoint = false;
             this.distanceMeters = distanceMeters;
             this.segmentIndex = segmentIndex;
             this.tOnSegment = tOnSegment;
+            return this;
+        }
+
+        Result setOffRoad(PhysicsRoadSegment nearest, float t, float y, float distanceMeters) {
+            this.offRoad = true;
+            this.hasSnapPoint = true;
+            snapPoint.set(nearest.pointXAt(t), y, nearest.pointZAt(t));
+            forwardXZ.set(nearest.getDirX(), 0f, nearest.getDirZ());
+            rightXZ.set(nearest.getRightX(), 0f, nearest.getRightZ());
+            this.distanceMeters = distanceMeters;
+            this.segmentIndex = -1;
+            this.tOnSegment = 0f;
+            return this;
         }
     }
 
+    // scratch for the car position, so reading it doesn't allocate
+    private final Vector3f scratchPos = new Vector3f();
+
+    /** Convenience version that allocates a fresh Result. */
     public Result check(VehiclePhysicsSystem physics, List<PhysicsRoadSegment> segments) {
+        return check(physics, segments, new Result());
+    }
+
+    public Result check(VehiclePhysicsSystem physics, List<PhysicsRoadSegment> segments, Result out) {
+        if (physics == null) {
+            return check(0f, 0f, 0f, 0f, null, out);
+        }
+        Vector3f pos = physics.getPosition(scratchPos);
+        return check(pos.x, pos.y, pos.z, physics.getSpeedKmh(), segments, out);
+    }
 
-        if (physics == null || segments == null || segments.isEmpty()) {
+    /**
+     * Checks the position against the route and writes the outcome into out.
+     *
+     * @return out
+     */
+    public Result check(float px, float py, float pz, float speedKmh, List<PhysicsRoadSegment> segments, Result out) {
+
+        if (segments == null || segments.isEmpty()) {
             currentSegment = null;
             currentIndex = -1;
             currentT = 0f;
-            return new Result(false, null, null, null, 0f, -1, 0f);
+            return out.clear();
         }
 
-        Vector3f pos = physics.getPosition();
-
-        float speedKmh = physics.getSpeedKmh();
         float speedPad = clamp(1.25f + (speedKmh / 100f) * 1.5f, 1.25f, 3.5f);
 
-        float bestDist2 = Float.POSITIVE_INFINITY;
-        Vector3f bestPoint = null;
-        Vector3f bestForward = null;
-        Vector3f bestRight = null;
-
         if (currentIndex >= 0 && currentIndex < segments.size()) {
             PhysicsRoadSegment seg = segments.get(currentIndex);
-            float innerHalfWidth = computeInnerHalfWidth(seg);
-            float outerHalfWidth = innerHalfWidth + speedPad;
+            float outerHalfWidth = seg.getCorridorHalfWidth() + speedPad;
 
-            ClosestPoint cp = closestPointOnSegmentXZ_WithT(pos, seg.getStartPoint(), seg.getEndPoint());
-            float dist = (float) Math.sqrt(cp.dist2);
+            float t = seg.closestT(px, pz);
+            float dist2 = seg.distanceSqAt(px, pz, t);
 
-            boolean nearCorner =
-                    pointDist2XZ(pos, seg.getStartPoint()) <= CORNER_GRACE_RADIUS_SQ ||
-                            pointDist2XZ(pos, seg.getEndPoint()) <= CORNER_GRACE_RADIUS_SQ;
+            boolean nearCorner = seg.endpointDistanceSq(px, pz) <= CORNER_GRACE_RADIUS_SQ;
 
-            if (dist <= outerHalfWidth || nearCorner) {
+            if (dist2 <= outerHalfWidth * outerHalfWidth || nearCorner) {
                 currentSegment = seg;
-                currentT = cp.t;
-                return new Result(false, null, null, null, dist, currentIndex, cp.t);
+                currentT = t;
+                return out.setOnRoad((float) Math.sqrt(dist2), currentIndex, t);
             }
         }
 
-        // Full scan
-        for (int i = 0; i < segments.size(); i++) {
-            PhysicsRoadSegment seg = segments.get(i);
-
-            float innerHalfWidth = computeInnerHalfWidth(seg);
-
-            ClosestPoint cp = closestPointOnSegmentXZ_WithT(
-                    pos,
-                    seg.getStartPoint(),
-                    seg.getEndPoint()
-            );
-
-            float dist = (float) Math.sqrt(cp.dist2);
-
-            boolean nearCorner =
-                    pointDist2XZ(pos, seg.getStartPoint()) <= CORNER_GRACE_RADIUS_SQ ||
-                            pointDist2XZ(pos, seg.getEndPoint()) <= CORNER_GRACE_RADIUS_SQ;
-
-            // Inside corridor or near joined endpoint
-            if (dist <= innerHalfWidth || nearCorner) {
-                currentSegment = seg;
-                currentIndex = i;
-                currentT = cp.t;
-                return new Result(false, null, null, null, dist, i, cp.t);
+        // neighbours, ahead in the direction of travel first
+        int from = currentIndex;
+        if (from >= 0 && from < segments.size()) {
+            for (int d = 1; d <= AHEAD_WINDOW; d++) {
+                if (tryMatch(segments, from + travelDirection * d, px, pz, out)) {
+                    windowHits++;
+                    return out;
+                }
             }
+            for (int d = 1; d <= BEHIND_WINDOW; d++) {
+                if (tryMatch(segments, from - travelDirection * d, px, pz, out)) {
+                    windowHits++;
+                    return out;
+                }
+            }
+        }
 
-            // Track nearest for teleport
-            if (cp.dist2 < bestDist2) {
-                bestDist2 = cp.dist2;
-
-                bestPoint = new Vector3f(cp.point.x, pos.y, cp.point.z);
+        // segments registered in the car's grid cell, in route order
+        RouteGridIndex index = gridFor(segments);
+        int cell = index.cellOf(px, pz);
+        if (cell >= 0) {
+            for (int k = index.start(cell); k < index.end(cell); k++) {
+                if (tryMatch(segments, index.item(k), px, pz, out)) {
+                    gridHits++;
+                    return out;
+                }
+            }
+        }
 
-                Vector3f f = seg.getEndPoint().subtract(seg.getStartPoint());
-                f.y = 0f;
-                if (f.lengthSquared() < 1e-6f) f.set(0, 0, 1);
-                f.normalizeLocal();
-                bestForward = f;
+        // Off-road: full scan for the nearest snap point, squared distances only
+        fullScans++;
+        float bestDist2 = Float.POSITIVE_INFINITY;
+        int bestIndex = -1;
+        float bestT = 0f;
 
-                Vector3f r = new Vector3f(-f.z, 0f, f.x);
-                if (r.lengthSquared() < 1e-6f) r.set(1, 0, 0);
-                r.normalizeLocal();
-                bestRight = r;
+        for (int i = 0; i < segments.size(); i++) {
+            PhysicsRoadSegment seg = segments.get(i);
+            float t = seg.closestT(px, pz);
+            float dist2 = seg.distanceSqAt(px, pz, t);
+            if (dist2 < bestDist2) {
+                bestDist2 = dist2;
+                bestIndex = i;
+                bestT = t;
             }
         }
 
-        // Off-road
         currentSegment = null;
         currentIndex = -1;
         currentT = 0f;
 
-        return new Result(
-                true,
-                bestPoint,
-                bestForward,
-                bestRight,
-                (float) Math.sqrt(bestDist2),
-                -1,
-                0f
-        );
+        return out.setOffRoad(segments.get(bestIndex), bestT, py, (float) Math.sqrt(bestDist2));
     }
 
-    private static float computeInnerHalfWidth(PhysicsRoadSegment seg) {
-        float base = (seg.getLaneCount() * seg.getLaneWidth()) * 0.5f;
+    // inside the segment's corridor or near one of its joined endpoints
+    private boolean tryMatch(List<PhysicsRoadSegment> segments, int i, float px, float pz, Result out) {
+        if (i < 0 || i >= segments.size()) return false;
 
-        float minHalfWidth = 4.0f;
-        float fixedPad = 1.0f;
+        PhysicsRoadSegment seg = segments.get(i);
+        float innerHalfWidth = seg.getCorridorHalfWidth();
+        float t = seg.closestT(px, pz);
+        float dist2 = seg.distanceSqAt(px, pz, t);
 
-        return Math.max(base, minHalfWidth) + fixedPad;
-    }
+        boolean nearCorner = seg.endpointDistanceSq(px, pz) <= CORNER_GRACE_RADIUS_SQ;
+        if (dist2 > innerHalfWidth * innerHalfWidth && !nearCorner) return false;
 
-    private static float pointDist2XZ(Vector3f a, Vector3f b) {
-        float dx = a.x - b.x;
-        float dz = a.z - b.z;
-        return dx * dx + dz * dz;
-    }
-
-    private static float clamp(float v, float lo, float hi) {
-        return Math.max(lo, Math.min(hi, v));
-    }
-
-    private static class ClosestPoint {
-        final Vector3f point;
-        final float dist2;
-        final float t;
-
-        ClosestPoint(Vector3f point, float dist2, float t) {
-            this.point = point;
-            this.dist2 = dist2;
-            this.t = t;
+        if (currentIndex >= 0 && i != currentIndex) {
+            travelDirection = i > currentIndex ? 1 : -1;
         }
+        currentSegment = seg;
+        currentIndex = i;
+        currentT = t;
+        out.setOnRoad((float) Math.sqrt(dist2), i, t);
+        return true;
     }
 
-    private static ClosestPoint closestPointOnSegmentXZ_WithT(Vector3f p, Vector3f a, Vector3f b) {
-
-        float ax = a.x, az = a.z;
-        float bx = b.x, bz = b.z;
-        float px = p.x, pz = p.z;
-
-        float abx = bx - ax;
-        float abz = bz - az;
-
-        float apx = px - ax;
-        float apz = pz - az;
-
-        float abLen2 = abx * abx + abz * abz;
-        if (abLen2 < 1e-6f) {
-            float dx = px - ax;
-            float dz = pz - az;
-            return new ClosestPoint(new Vector3f(ax, 0, az), dx * dx + dz * dz, 0f);
+    private RouteGridIndex gridFor(List<PhysicsRoadSegment> segments) {
+        if (segments != indexedRoute || grid == null) {
+            float margin = CORNER_GRACE_RADIUS;
+            for (PhysicsRoadSegment seg : segments) {
+                margin = Math.max(margin, seg.getCorridorHalfWidth());
+            }
+            grid = new RouteGridIndex(segments, margin);
+            indexedRoute = segments;
         }
+        return grid;
+    }
 
-        float t = (apx * abx + apz * abz) / abLen2;
-        t = Math.max(0f, Math.min(1f, t));
-
-        float cx = ax + abx * t;
-        float cz = az + abz * t;
-
-        float dx = px - cx;
-        float dz = pz - cz;
-
-        return new ClosestPoint(new Vector3f(cx, 0, cz), dx * dx + dz * dz, t);
+    private static float clamp(float v, float lo, float hi) {
+        return Math.max(lo, Math.min(hi, v));
     }
-}
\ No newline at end of file
+}
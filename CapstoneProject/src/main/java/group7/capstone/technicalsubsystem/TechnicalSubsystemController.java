@@ -3,10 +3,14 @@ package group7.capstone.technicalsubsystem;
 import com.jme3.math.Vector3f;
 import group7.capstone.APIController.APIResponseDomain;
 import group7.capstone.APIController.GoogleMapsAPIController;
+import group7.capstone.APIController.IoExecutor;
+import group7.capstone.caching.CacheConfig;
 import group7.capstone.caching.RoadApiCacheManager;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class TechnicalSubsystemController {
 
@@ -16,24 +20,54 @@ public class TechnicalSubsystemController {
 
     private final GoogleMapsAPIController googleApi;
     private final RoadApiCacheManager roadCache;
+    private final IoExecutor ioExecutor;
 
     private List<PhysicsRoadSegment> activeRouteSegments = Collections.emptyList();
 
     private float roadRequestCooldown = 0f;
     private boolean roadRequestInFlight = false;
 
+    // Road requests run on the I/O executor; results are handed back here and applied
+    // on the sim thread so the route is never mutated mid-step.
+    private final AtomicReference<APIResponseDomain> pendingRoad = new AtomicReference<>();
+    private final AtomicBoolean roadRequestFailed = new AtomicBoolean(false);
+
     // FIX: was 60f. Increased to 300m so the next road segment is requested early enough
     // to arrive before the car runs out of road, especially important at intersections.
-    private static final float NEED_MORE_THRESHOLD_M = 300f;
+    // Default only: preload.distance.km in the cache config replaces it (see applyConfig).
+    private static final float DEFAULT_PRELOAD_DISTANCE_M = 300f;
+    private volatile float preloadDistanceM = DEFAULT_PRELOAD_DISTANCE_M;
     private static final float REQUEST_COOLDOWN_S = 1.5f;
 
+    // road further behind the car than this is retired when new road arrives
+    private static final float RETAIN_BEHIND_M = 1000f;
+
+    // floating origin: once the car is this far from the origin, the origin moves to the
+    // car. Keeps physics coordinates within a couple of km, where a float is sub-millimetre,
+    // and the car well inside the ground box.
+    private static final float REBASE_DISTANCE_M = 2000f;
+
+    // where the current origin is in the first route's frame, for getWorldPosition()
+    private double originOffsetX = 0.0;
+    private double originOffsetZ = 0.0;
+    private int rebaseCount = 0;
+
     public TechnicalSubsystemController(GoogleMapsAPIController googleApi, RoadApiCacheManager roadCache) {
+        this(googleApi, roadCache, IoExecutor.getInstance());
+    }
+
+    public TechnicalSubsystemController(GoogleMapsAPIController googleApi, RoadApiCacheManager roadCache,
+                                        IoExecutor ioExecutor) {
         this.googleApi = googleApi;
         this.roadCache = roadCache;
+        this.ioExecutor = ioExecutor;
 
         this.world = new MapObject();
         this.car = new CarObject("Car_01", world);
         this.roadPipeline = new RoadPipelineController(2, 3.7f);
+        this.roadPipeline.setRetainBehindMeters(RETAIN_BEHIND_M);
+        this.roadPipeline.setHistory(new RouteHistory());
+        this.roadPipeline.setSimplifier(PolylineSimplifier.forLaneWidth(3.7f));
     }
 
     public TechnicalSubsystemController(GoogleMapsAPIController googleApi) {
@@ -41,8 +75,11 @@ public class TechnicalSubsystemController {
     }
 
     public void updateAndMaybeRequestMoreRoad(float throttle, float brake, float steering, float dt) {
+        applyCompletedRoadRequest();
+
         car.update(throttle, brake, steering, dt);
         world.step(dt);
+        rebaseIfFarFromOrigin();
 
         roadRequestCooldown = Math.max(0f, roadRequestCooldown - dt);
 
@@ -68,13 +105,30 @@ public class TechnicalSubsystemController {
 
     public void extendRouteFromApi(APIResponseDomain response) {
         roadPipeline.appendFromApiResponse(response);
+        int removed = roadPipeline.trimBehind(car.getCurrentSegmentIndex());
         activeRouteSegments = roadPipeline.getPhysicsSegments();
-        car.setRouteSegments(activeRouteSegments);
+        car.setRouteSegments(activeRouteSegments, removed);
 
         roadRequestInFlight = false;
         roadRequestCooldown = REQUEST_COOLDOWN_S;
     }
 
+    private void rebaseIfFarFromOrigin() {
+        if (activeRouteSegments == null || activeRouteSegments.isEmpty()) return;
+
+        Vector3f pos = car.getPosition();
+        if (pos.x * pos.x + pos.z * pos.z < REBASE_DISTANCE_M * REBASE_DISTANCE_M) return;
+
+        double[] geo = roadPipeline.toGeo(pos);
+        roadPipeline.rebaseOrigin(geo[0], geo[1]);
+        activeRouteSegments = roadPipeline.getPhysicsSegments();
+        car.rebase(new Vector3f(pos.x, 0f, pos.z), activeRouteSegments);
+
+        originOffsetX += pos.x;
+        originOffsetZ += pos.z;
+        rebaseCount++;
+    }
+
     private boolean shouldRequestMoreRoadInternal() {
         if (roadRequestInFlight) return false;
         if (roadRequestCooldown > 0f) return false;
@@ -86,7 +140,7 @@ public class TechnicalSubsystemController {
         if (seg == null) return false;
 
         float remaining = car.getRemainingRoadMeters();
-        return remaining < NEED_MORE_THRESHOLD_M;
+        return remaining < preloadDistanceM;
     }
 
     private void requestMoreRoadNow() {
@@ -103,17 +157,34 @@ public class TechnicalSubsystemController {
 
         int headDeg = car.getHeadingDegrees();
 
-        APIResponseDomain more = (roadCache != null)
+        // road data outranks all imagery: the car stops dead if it runs out of road
+        ioExecutor.submit(IoExecutor.Endpoint.SNAP_TO_ROADS, IoExecutor.Priority.CRITICAL, 0, () -> (roadCache != null)
                 ? roadCache.getStreet(lat, lon, headDeg)
-                : googleApi.getStreet(lat, lon, headDeg);
+                : googleApi.getStreet(lat, lon, headDeg)
+        ).whenComplete((more, error) -> {
+            if (error != null || more == null) {
+                if (error != null) {
+                    System.out.println("Road request failed: " + error.getMessage());
+                }
+                roadRequestFailed.set(true);
+            } else {
+                pendingRoad.set(more);
+            }
+        });
+    }
 
-        if (more == null) {
-            roadRequestInFlight = false;
-            roadRequestCooldown = REQUEST_COOLDOWN_S;
+    /** Applies a road response that arrived since the last tick. Sim thread only. */
+    private void applyCompletedRoadRequest() {
+        APIResponseDomain more = pendingRoad.getAndSet(null);
+        if (more != null) {
+            extendRouteFromApi(more);
             return;
         }
 
-        extendRouteFromApi(more);
+        if (roadRequestFailed.getAndSet(false)) {
+            roadRequestInFlight = false;
+            roadRequestCooldown = REQUEST_COOLDOWN_S;
+        }
     }
 
     public List<PhysicsRoadSegment> getActiveRouteSegments() {
@@ -136,6 +207,19 @@ public class TechnicalSubsystemController {
         return car.getPosition();
     }
 
+    /**
+     * Position in the frame of the first route, i.e. continuous across origin rebases.
+     * Only approximate far from the start; use it for distances travelled, not physics.
+     */
+    public Vector3f getWorldPosition() {
+        Vector3f pos = car.getPosition();
+        return new Vector3f((float) (pos.x + originOffsetX), pos.y, (float) (pos.z + originOffsetZ));
+    }
+
+    public int getRebaseCount() {
+        return rebaseCount;
+    }
+
     public float getStopDistance() {
         return car.getStopDistance();
     }
@@ -145,11 +229,36 @@ public class TechnicalSubsystemController {
     }
 
     public int getGeoPointCount() {
-        return roadPipeline.getGeoPoints().size();
+        return roadPipeline.getSnapshot().getGeoPointCount();
     }
 
     public int getPhysicsSegmentCount() {
-        return roadPipeline.getPhysicsSegments().size();
+        return roadPipeline.getSnapshot().getSegmentCount();
+    }
+
+    /** More road is requested once less than this is left ahead of the car. */
+    public void setPreloadDistanceMeters(float meters) {
+        if (meters <= 0f) throw new IllegalArgumentException("meters must be > 0");
+        this.preloadDistanceM = meters;
+    }
+
+    public float getPreloadDistanceMeters() {
+        return preloadDistanceM;
+    }
+
+    /** Takes the request-ahead distance from preload.distance.km; use as a CacheConfig listener. */
+    public void applyConfig(CacheConfig config) {
+        setPreloadDistanceMeters((float) (config.getPreloadDistanceKm() * 1000.0));
+    }
+
+    /** How far behind the car road is kept; 0 keeps the whole route. */
+    public void setRetainBehindMeters(float meters) {
+        roadPipeline.setRetainBehindMeters(meters);
+    }
+
+    /** Geo points of road already retired from the route. */
+    public RouteHistory getRouteHistory() {
+        return roadPipeline.getHistory();
     }
 
     public float getRemainingRoadMeters() {
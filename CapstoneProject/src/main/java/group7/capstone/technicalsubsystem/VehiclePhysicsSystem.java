@@ -28,9 +28,18 @@ public class VehiclePhysicsSystem {
     private List<PhysicsRoadSegment> routeSegments;
     private final SoftRailFollower rail = new SoftRailFollower();
 
-    // Cached once-per-frame rail result
+    // Cached once-per-frame rail result: null, or the reused railResult once a check ran
+    private final SoftRailFollower.Result railResult = new SoftRailFollower.Result();
     private SoftRailFollower.Result lastRailResult = null;
 
+    // scratch for per-tick reads of the body state
+    private final Vector3f scratchVelocity = new Vector3f();
+
+    // bumped whenever lastRailResult changes, so currentGeo() knows when to recompute
+    private long railVersion = 0;
+    private long geoVersion = -1;
+    private double[] geoCache;
+
     public VehiclePhysicsSystem(PhysicsRigidBody body) {
         this.vehicleBody = body;
         this.config = VehicleConfig.getInstance();
@@ -45,15 +54,53 @@ public class VehiclePhysicsSystem {
         offRoadAccumSeconds = 0f;
         teleportCooldownSeconds = 0f;
         lastRailResult = null;
+        railVersion++;
+    }
+
+    /**
+     * Swaps in a route whose first `removedFromFront` segments were trimmed off (road
+     * already driven). The rail index and last rail result are shifted to match, so the
+     * remaining distance and lat/lon stay correct until the next rail update.
+     */
+    public void setRouteSegments(List<PhysicsRoadSegment> segments, int removedFromFront) {
+        SoftRailFollower.Result last = lastRailResult;
+        setRouteSegments(segments);
+        if (removedFromFront <= 0) return;
+
+        rail.shiftIndex(removedFromFront);
+        if (last != null && last.segmentIndex >= removedFromFront) {
+            last.segmentIndex -= removedFromFront;
+            lastRailResult = last;
+            railVersion++;
+        }
+    }
+
+    /**
+     * Floating origin: the world was shifted by -shift, so move the car by the same
+     * amount (velocity and rotation are kept) and take the route in the new frame.
+     */
+    public void rebase(Vector3f shift, List<PhysicsRoadSegment> segments) {
+        vehicleBody.setPhysicsLocation(getPosition().subtract(shift));
+        this.routeSegments = segments;
+        // the cached snap point is in the old frame
+        lastRailResult = null;
+        railVersion++;
+    }
+
+    /** Index of the route segment the car is on, or -1 when off-road. */
+    public int getCurrentSegmentIndex() {
+        return rail.getCurrentIndex();
     }
 
     /** Call ONCE per frame  */
     public void updateRailState(float dt) {
         if (routeSegments == null || routeSegments.isEmpty()) {
-            lastRailResult = new SoftRailFollower.Result(false, null, null, null, 0f, -1, 0f);
+            lastRailResult = railResult.clear();
+            railVersion++;
             return;
         }
-        lastRailResult = rail.check(this, routeSegments);
+        lastRailResult = rail.check(this, routeSegments, railResult);
+        railVersion++;
     }
 
     public boolean isOnRoad() {
@@ -87,7 +134,7 @@ public class VehiclePhysicsSystem {
 
     public void teleportToNearestRoad() {
         if (routeSegments == null || routeSegments.isEmpty()) return;
-        if (lastRailResult == null || !lastRailResult.offRoad || lastRailResult.snapPoint == null) return;
+        if (lastRailResult == null || !lastRailResult.offRoad || !lastRailResult.hasSnapPoint()) return;
 
         vehicleBody.setLinearVelocity(Vector3f.ZERO);
         vehicleBody.setAngularVelocity(Vector3f.ZERO);
@@ -194,45 +241,53 @@ public class VehiclePhysicsSystem {
     }
 
     public double getCurrentLatitude() {
-        if (routeSegments == null || routeSegments.isEmpty()) return Double.NaN;
-        if (lastRailResult == null) return Double.NaN;
-
-        int idx = lastRailResult.segmentIndex;
-        float t = lastRailResult.tOnSegment;
-
-        if (idx < 0 || idx >= routeSegments.size()) return Double.NaN;
-
-        PhysicsRoadSegment cur = routeSegments.get(idx);
-        RoadSegment a = cur.getOriginalSegment();
-        if (a == null) return Double.NaN;
-
-        if (idx + 1 >= routeSegments.size()) return a.getLatitude();
-
-        RoadSegment b = routeSegments.get(idx + 1).getOriginalSegment();
-        if (b == null) return a.getLatitude();
-
-        return a.getLatitude() + (b.getLatitude() - a.getLatitude()) * t;
+        double[] geo = currentGeo();
+        return geo != null ? geo[0] : Double.NaN;
     }
 
     public double getCurrentLongitude() {
-        if (routeSegments == null || routeSegments.isEmpty()) return Double.NaN;
-        if (lastRailResult == null) return Double.NaN;
+        double[] geo = currentGeo();
+        return geo != null ? geo[1] : Double.NaN;
+    }
+
+    /**
+     * Lat/lon of the car's point on the road, from the exact inverse projection of the
+     * segment's frame. Computed once per rail update, since callers ask for latitude and
+     * longitude separately.
+     */
+    private double[] currentGeo() {
+        if (routeSegments == null || routeSegments.isEmpty()) return null;
+        if (lastRailResult == null) return null;
+        if (geoVersion == railVersion) return geoCache;
 
         int idx = lastRailResult.segmentIndex;
         float t = lastRailResult.tOnSegment;
 
-        if (idx < 0 || idx >= routeSegments.size()) return Double.NaN;
-
-        PhysicsRoadSegment cur = routeSegments.get(idx);
-        RoadSegment a = cur.getOriginalSegment();
-        if (a == null) return Double.NaN;
+        double[] geo = null;
+        if (idx >= 0 && idx < routeSegments.size()) {
+            PhysicsRoadSegment cur = routeSegments.get(idx);
+            geo = cur.geoAt(t);
+            if (geo == null) {
+                geo = interpolateGeo(idx, t);
+            }
+        }
+        geoCache = geo;
+        geoVersion = railVersion;
+        return geo;
+    }
 
-        if (idx + 1 >= routeSegments.size()) return a.getLongitude();
+    // for segments built without a frame: straight lat/lon interpolation between road points
+    private double[] interpolateGeo(int idx, float t) {
+        RoadSegment a = routeSegments.get(idx).getOriginalSegment();
+        if (a == null) return null;
 
-        RoadSegment b = routeSegments.get(idx + 1).getOriginalSegment();
-        if (b == null) return a.getLongitude();
+        RoadSegment b = (idx + 1 < routeSegments.size()) ? routeSegments.get(idx + 1).getOriginalSegment() : null;
+        if (b == null) return new double[] { a.getLatitude(), a.getLongitude() };
 
-        return a.getLongitude() + (b.getLongitude() - a.getLongitude()) * t;
+        return new double[] {
+                a.getLatitude() + (b.getLatitude() - a.getLatitude()) * t,
+                a.getLongitude() + (b.getLongitude() - a.getLongitude()) * t
+        };
     }
 
     // ---------------- ENGINE / MOTION ----------------
@@ -354,8 +409,13 @@ public class VehiclePhysicsSystem {
         return vehicleBody.getPhysicsLocation();
     }
 
+    /** Position written into store, for per-tick callers that shouldn't allocate. */
+    public Vector3f getPosition(Vector3f store) {
+        return vehicleBody.getPhysicsLocation(store);
+    }
+
     public float getSpeedKmh() {
-        return vehicleBody.getLinearVelocity().length() * MPS_TO_KMH;
+        return vehicleBody.getLinearVelocity(scratchVelocity).length() * MPS_TO_KMH;
     }
 
     public float getSpeed() {
@@ -0,0 +1,212 @@
+package group7.capstone.visuals.GUI;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Builds the cross-fade between two images on a background thread.
+ *
+ * Each tick the worker blends the old and new view into one of two back buffers and
+ * publishes it; the panel's paint just blits the latest finished frame. The buffers
+ * belong to the compositor, not the fade, so they are only reallocated when the panel
+ * size changes, and they are created compatible with the panel's screen so the blit
+ * needs no colour conversion. The crops are only re-rendered when a fade starts or the
+ * panel's zoom, turning or size changes mid-fade. A new image arriving mid-fade simply
+ * restarts the fade from the image that was fading in.
+ *
+ * All panels share one daemon worker thread.
+ */
+class FadeCompositor {
+
+    static final long FADE_NANOS = 220_000_000L;
+    private static final long TICK_MS = 16; // ~60fps
+
+    private static final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fade-compositor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** What the panel is currently showing, read by the worker every tick. */
+    interface View {
+        double viewZoom();
+        double viewTurning();
+        int viewWidth();
+        int viewHeight();
+        GraphicsConfiguration viewGraphicsConfiguration(); // null when not displayable
+        void repaint();
+    }
+
+    private final View view;
+    private final AtomicReference<BufferedImage> frame = new AtomicReference<>();
+    private final AtomicLong composedFrames = new AtomicLong();
+    private final AtomicLong bufferAllocations = new AtomicLong();
+
+    // worker thread only; every fade of this panel reuses them
+    private BufferedImage fromView;
+    private BufferedImage toView;
+    private final BufferedImage[] backBuffers = new BufferedImage[2];
+    private int nextBuffer = 0;
+    private GraphicsConfiguration bufferConfig;
+    private Fade renderedFade;
+    private double viewZoom = Double.NaN;
+    private double viewTurning = Double.NaN;
+
+    // the fade currently running, guarded by this
+    private ScheduledFuture<?> job;
+    private volatile Fade current;
+
+    FadeCompositor(View view) {
+        this.view = view;
+    }
+
+    /** Starts fading from one image to the other, replacing any fade in progress. */
+    synchronized void start(BufferedImage from, BufferedImage to) {
+        cancelLocked();
+        Fade fade = new Fade(from, to);
+        current = fade;
+        job = worker.scheduleAtFixedRate(fade::tick, 0, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void cancel() {
+        cancelLocked();
+        frame.set(null);
+    }
+
+    private void cancelLocked() {
+        if (job != null) {
+            job.cancel(false);
+            job = null;
+        }
+        current = null;
+    }
+
+    private synchronized void finish(Fade fade) {
+        if (current != fade) return;
+        cancelLocked();
+        frame.set(null);
+    }
+
+    // a tick of a replaced fade can still be running when the next one starts
+    private synchronized void publish(Fade fade, BufferedImage composed) {
+        if (current == fade) {
+            frame.set(composed);
+        }
+    }
+
+    /** Latest blended frame, or null when no fade is running. Lock on it while drawing. */
+    BufferedImage currentFrame() {
+        return frame.get();
+    }
+
+    boolean isFading() {
+        return frame.get() != null || current != null;
+    }
+
+    long getComposedFrames() {
+        return composedFrames.get();
+    }
+
+    /** How many times the fade buffers were (re)allocated, i.e. first use or a size change. */
+    long getBufferAllocations() {
+        return bufferAllocations.get();
+    }
+
+    private void compose(Fade fade, float alpha, int w, int h) {
+        ensureBuffers(w, h);
+
+        double z = view.viewZoom();
+        double t = view.viewTurning();
+        if (renderedFade != fade || z != viewZoom || t != viewTurning) {
+            renderView(fromView, fade.from, z, t);
+            renderView(toView, fade.to, z, t);
+            renderedFade = fade;
+            viewZoom = z;
+            viewTurning = t;
+        }
+
+        BufferedImage back = backBuffers[nextBuffer];
+        nextBuffer ^= 1;
+
+        // the EDT holds this lock while it blits the frame, so never overwrite one mid-paint
+        synchronized (back) {
+            Graphics2D g = back.createGraphics();
+            try {
+                g.drawImage(fromView, 0, 0, null);
+                g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+                g.drawImage(toView, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+        }
+        publish(fade, back);
+        composedFrames.incrementAndGet();
+    }
+
+    private void ensureBuffers(int w, int h) {
+        GraphicsConfiguration gc = view.viewGraphicsConfiguration();
+        if (fromView != null && fromView.getWidth() == w && fromView.getHeight() == h && gc == bufferConfig) {
+            return;
+        }
+        fromView = createBuffer(gc, w, h);
+        toView = createBuffer(gc, w, h);
+        backBuffers[0] = createBuffer(gc, w, h);
+        backBuffers[1] = createBuffer(gc, w, h);
+        bufferConfig = gc;
+        renderedFade = null;
+        bufferAllocations.incrementAndGet();
+    }
+
+    private static BufferedImage createBuffer(GraphicsConfiguration gc, int w, int h) {
+        return gc != null
+                ? gc.createCompatibleImage(w, h, Transparency.OPAQUE)
+                : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static void renderView(BufferedImage target, BufferedImage src, double z, double t) {
+        Graphics2D g = target.createGraphics();
+        try {
+            ImagePanel.renderCrop(g, src, z, t, target.getWidth(), target.getHeight());
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private final class Fade {
+        private final BufferedImage from;
+        private final BufferedImage to;
+        private final long startNanos = System.nanoTime();
+
+        Fade(BufferedImage from, BufferedImage to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        void tick() {
+            if (current != this) return;
+
+            float alpha = Math.min(1f, (float) (System.nanoTime() - startNanos) / FADE_NANOS);
+            int w = view.viewWidth();
+            int h = view.viewHeight();
+
+            // not laid out yet: nothing to draw, but still end on time
+            if (w > 0 && h > 0 && alpha < 1f) {
+                compose(this, alpha, w, h);
+            }
+
+            if (alpha >= 1f) {
+                finish(this);
+            }
+            view.repaint();
+        }
+    }
+}
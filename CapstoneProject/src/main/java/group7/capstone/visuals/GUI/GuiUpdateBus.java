@@ -0,0 +1,116 @@
+package group7.capstone.visuals.GUI;
+
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Single channel from the simulation (and image loaders) to the Swing widgets.
+ *
+ * Producers on any thread only overwrite the latest value in an atomic slot; nothing is
+ * queued, so a slow EDT never builds up a backlog. One Swing Timer on the EDT renders
+ * whatever is newest at the display rate, and applies the street view zoom at the same
+ * 50 ms cadence the old zoom thread used, so no Swing component is touched off the EDT.
+ * The zoom uses speed and heading blended between the last two snapshots, so it moves
+ * smoothly rather than in steps at the HUD publish rate.
+ */
+public class GuiUpdateBus {
+
+    private static final int FRAME_MS = 16; // ~60fps
+    private static final long ZOOM_PERIOD_NANOS = 50_000_000L;
+
+    private final ImagePanel streetView;
+    private final HudPanel hud;
+    private final Consumer<String> footer;
+
+    private final AtomicReference<HudSnapshot> latest = new AtomicReference<>();
+    private final AtomicReference<BufferedImage> pendingStreetView = new AtomicReference<>();
+    private final AtomicReference<BufferedImage> pendingMap = new AtomicReference<>();
+
+    // EDT only
+    private HudSnapshot applied;
+    private HudSnapshot previous; // the snapshot published before applied, for blending
+    private long lastZoomNanos = System.nanoTime();
+    private Timer timer;
+
+    public GuiUpdateBus(SimulatorFrame frame) {
+        this(frame.getImage(), frame.getHud(), frame::setFooterStatus);
+    }
+
+    public GuiUpdateBus(ImagePanel streetView, HudPanel hud, Consumer<String> footer) {
+        this.streetView = streetView;
+        this.hud = hud;
+        this.footer = footer;
+    }
+
+    /** Replaces the pending HUD state. Safe to call from any thread. */
+    public void publish(HudSnapshot snapshot) {
+        latest.set(snapshot);
+    }
+
+    /** Overrides the status of the latest snapshot, e.g. "LOADING" while an image is requested. */
+    public void publishStatus(String status) {
+        latest.updateAndGet(s -> s != null ? s.withStatus(status) : null);
+    }
+
+    public void postStreetViewImage(BufferedImage img) {
+        pendingStreetView.set(img);
+    }
+
+    public void postMapImage(BufferedImage img) {
+        pendingMap.set(img);
+    }
+
+    /** Starts rendering. Must be called on the EDT. */
+    public void start() {
+        if (timer != null) return;
+        timer = new Timer(FRAME_MS, e -> flush());
+        timer.start();
+    }
+
+    public void stop() {
+        SwingUtilities.invokeLater(() -> {
+            if (timer != null) {
+                timer.stop();
+                timer = null;
+            }
+        });
+    }
+
+    /** Applies whatever changed since the last frame. Called by the timer; must run on the EDT. */
+    public void flush() {
+        BufferedImage street = pendingStreetView.getAndSet(null);
+        if (street != null) {
+            streetView.setImage(street);
+        }
+        BufferedImage map = pendingMap.getAndSet(null);
+        if (map != null) {
+            hud.setMapImage(map);
+        }
+
+        HudSnapshot snapshot = latest.get();
+        if (snapshot == null) return;
+
+        if (snapshot != applied) {
+            hud.setSpeed(snapshot.getSpeedKmh());
+            if (snapshot.hasLatLng()) {
+                hud.setLatLng(snapshot.getLat(), snapshot.getLng());
+            }
+            hud.setHeading(snapshot.getHeading());
+            hud.setStatus(snapshot.getStatus());
+            footer.accept(snapshot.getFooter());
+            // a status-only update is the same state, not a new one to blend towards
+            if (applied == null || applied.getPublishedNanos() != snapshot.getPublishedNanos()) {
+                previous = applied;
+            }
+            applied = snapshot;
+        }
+
+        long now = System.nanoTime();
+        if (now - lastZoomNanos >= ZOOM_PERIOD_NANOS) {
+            lastZoomNanos = now;
+            streetView.zoom(snapshot.speedKmhAt(previous, now), snapshot.headingAt(previous, now));
+        }
+    }
+}
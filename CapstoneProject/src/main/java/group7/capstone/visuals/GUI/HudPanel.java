@@ -4,6 +4,7 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.Objects;
 
 public class HudPanel extends JPanel {
 
@@ -69,19 +70,26 @@ public class HudPanel extends JPanel {
     }
 
     public void setSpeed(double kmh) {
-        speedValue.setText(String.format("%.1f km/h", kmh));
+        setIfChanged(speedValue, String.format("%.1f km/h", kmh));
     }
 
     public void setLatLng(double lat, double lng) {
-        latLngValue.setText(lat + ", " + lng);
+        setIfChanged(latLngValue, lat + ", " + lng);
     }
 
     public void setHeading(int heading) {
-        headingValue.setText(String.valueOf(heading));
+        setIfChanged(headingValue, String.valueOf(heading));
     }
 
     public void setStatus(String status) {
-        statusValue.setText(status);
+        setIfChanged(statusValue, status);
+    }
+
+    // JLabel.setText revalidates and repaints even when the text is the same
+    static void setIfChanged(JLabel label, String text) {
+        if (!Objects.equals(text, label.getText())) {
+            label.setText(text);
+        }
     }
 
     public void setMapImage(BufferedImage img){mapPanel.setImage(img);}
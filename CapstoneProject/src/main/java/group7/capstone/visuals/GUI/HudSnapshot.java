@@ -0,0 +1,78 @@
+package group7.capstone.visuals.GUI;
+
+/**
+ * Immutable copy of everything the HUD shows, published by the simulation thread
+ * and rendered by GuiUpdateBus on the EDT.
+ *
+ * Snapshots are stamped with the time they were published, so views that render more
+ * often than the HUD is published (the street view zoom) can blend the previous and
+ * this snapshot instead of stepping at the publish rate.
+ */
+public final class HudSnapshot {
+
+    private final double speedKmh;
+    private final double lat;
+    private final double lng;
+    private final int heading;
+    private final String status;
+    private final String footer;
+    private final long publishedNanos;
+
+    public HudSnapshot(double speedKmh, double lat, double lng, int heading, String status, String footer) {
+        this(speedKmh, lat, lng, heading, status, footer, System.nanoTime());
+    }
+
+    public HudSnapshot(double speedKmh, double lat, double lng, int heading, String status, String footer,
+                       long publishedNanos) {
+        this.speedKmh = speedKmh;
+        this.lat = lat;
+        this.lng = lng;
+        this.heading = heading;
+        this.status = status;
+        this.footer = footer;
+        this.publishedNanos = publishedNanos;
+    }
+
+    /** Same state with another status; keeps the publish time, since nothing moved. */
+    public HudSnapshot withStatus(String newStatus) {
+        return new HudSnapshot(speedKmh, lat, lng, heading, newStatus, footer, publishedNanos);
+    }
+
+    public double getSpeedKmh() { return speedKmh; }
+    public double getLat() { return lat; }
+    public double getLng() { return lng; }
+    public int getHeading() { return heading; }
+    public String getStatus() { return status; }
+    public String getFooter() { return footer; }
+    public long getPublishedNanos() { return publishedNanos; }
+
+    /**
+     * Speed at nowNanos, moving from previous to this snapshot over one publish interval
+     * starting when this one was published. Without a previous snapshot it is this one's.
+     */
+    public double speedKmhAt(HudSnapshot previous, long nowNanos) {
+        if (previous == null) return speedKmh;
+        return previous.speedKmh + (speedKmh - previous.speedKmh) * progress(previous, nowNanos);
+    }
+
+    /** Heading at nowNanos like speedKmhAt, turning the short way round. */
+    public int headingAt(HudSnapshot previous, long nowNanos) {
+        if (previous == null) return heading;
+        int delta = Math.floorMod(heading - previous.heading + 180, 360) - 180;
+        long blended = Math.round(previous.heading + delta * progress(previous, nowNanos));
+        return (int) Math.floorMod(blended, 360L);
+    }
+
+    // 0 when this snapshot arrives, 1 one publish interval later
+    private double progress(HudSnapshot previous, long nowNanos) {
+        long interval = publishedNanos - previous.publishedNanos;
+        if (interval <= 0) return 1.0;
+        double t = (double) (nowNanos - publishedNanos) / interval;
+        return Math.max(0.0, Math.min(1.0, t));
+    }
+
+    /** False before the car has a geographic position. */
+    public boolean hasLatLng() {
+        return !Double.isNaN(lat) && !Double.isNaN(lng);
+    }
+}
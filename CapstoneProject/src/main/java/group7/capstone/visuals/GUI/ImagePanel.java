@@ -1,39 +1,55 @@
 package group7.capstone.visuals.GUI;
 
+import group7.capstone.visuals.ImageFingerprint;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 import java.awt.geom.AffineTransform;
 
 public class ImagePanel extends JPanel {
 
     private BufferedImage image;
-    private BufferedImage prevImage;
-
-    private BufferedImage imgToCheck;
 
-    // Simple cross-fade so image swaps don't feel like "jumps"
-    private float fadeAlpha = 1f; // 0..1 (new image)
-    private javax.swing.Timer fadeTimer;
+    // Simple cross-fade so image swaps don't feel like "jumps", blended off the EDT
+    private final FadeCompositor fader;
 
-    private double zoom;
+    // read by the fade worker, so volatile
+    private volatile double zoom;
     private static double zoomCoef = 0.0005;
 
-    private double turning;
+    private volatile double turning;
     private int lastHead = 500;
     private static double turnCoef = 0.0333;
 
+    // pre-scaled view of image, only touched on the EDT
+    private final RenderedFrame currentFrame = new RenderedFrame();
+    private long frameRenders = 0;
+
+    // size the image was last drawn at, for the fade worker
+    private volatile int viewWidth;
+    private volatile int viewHeight;
+
     public ImagePanel() {
         setBackground(UITheme.BG);
         zoom = 1;
         turning = 2;
+        fader = new FadeCompositor(new FadeCompositor.View() {
+            @Override public double viewZoom() { return zoom; }
+            @Override public double viewTurning() { return turning; }
+            @Override public int viewWidth() { return viewWidth; }
+            @Override public int viewHeight() { return viewHeight; }
+            @Override public GraphicsConfiguration viewGraphicsConfiguration() { return getGraphicsConfiguration(); }
+            @Override public void repaint() { ImagePanel.this.repaint(); }
+        });
     }
 
     public void setImage(BufferedImage img) {
         if (img == null) {
             image = null;
-            prevImage = null;
-            fadeAlpha = 1f;
+            fader.cancel();
+            currentFrame.release();
             repaint();
             return;
         }
@@ -41,43 +57,26 @@ public class ImagePanel extends JPanel {
         // If this is the first image, just set it.
         if (image == null) {
             image = img;
-            imgToCheck = image;
-            prevImage = null;
-            fadeAlpha = 1f;
             repaint();
             return;
         }
 
-        //checks if the new image is identical to the previous one before resetting zoom
-        if (!bufferedImagesEqual(image,imgToCheck)) {
+        // same frame again (e.g. a cache hit while stopped): nothing to fade or repaint
+        ImageFingerprint current = ImageFingerprint.of(image);
+        ImageFingerprint next = ImageFingerprint.of(img);
+        if (img == image || current.sameContent(next)) {
+            return;
+        }
+
+        // only a genuinely new view resets the zoom, not a blank frame or a re-encode of the same one
+        if (!bufferedImagesEqual(image, img) && !current.isNearDuplicate(next)) {
             zoom = 1;
             turning = 2;
         }
-        imgToCheck = image;
 
-        // Start fade from old -> new.
-        prevImage = image;
+        // Start fade from old -> new. The worker does the blending; paint only blits its frames.
+        fader.start(image, img);
         image = img;
-        fadeAlpha = 0f;
-
-        if (fadeTimer != null && fadeTimer.isRunning()) {
-            fadeTimer.stop();
-        }
-
-        final int durationMs = 220;
-        final int tickMs = 16; // ~60fps
-        final float step = (float) tickMs / (float) durationMs;
-
-        fadeTimer = new javax.swing.Timer(tickMs, e -> {
-            fadeAlpha = Math.min(1f, fadeAlpha + step);
-            repaint();
-
-            if (fadeAlpha >= 1f) {
-                ((javax.swing.Timer) e.getSource()).stop();
-                prevImage = null;
-            }
-        });
-        fadeTimer.start();
     }
 
     @Override
@@ -96,57 +95,151 @@ public class ImagePanel extends JPanel {
         int imgW = image.getWidth();
         int imgH = image.getHeight();
 
-        double zoomWidth = imgW * zoom;
-        double zoomHeight = imgH * zoom;
-
-        double anchorx = (imgW - zoomWidth);
-        double anchory = (imgH - zoomHeight);
-
-        AffineTransform at = new AffineTransform();
-        at.scale(zoom, zoom);
-
         // Keep aspect ratio
         double scale = Math.min((double) panelW / imgW, (double) panelH / imgH);
         int drawW = (int) (imgW * scale);
         int drawH = (int) (imgH * scale);
+        if (drawW <= 0 || drawH <= 0) {
+            return;
+        }
 
         int x = 0;
         int y = 0;
 
+        // zoom() may be called from another thread, so read the view once per paint
+        double z = zoom;
+        double t = turning;
+
+        viewWidth = drawW;
+        viewHeight = drawH;
+
         Graphics2D g2 = (Graphics2D) g.create();
+        g2.setTransform(new AffineTransform());
 
-        at.translate(0, 0);
+        BufferedImage blended = fader.currentFrame();
+        if (blended != null) {
+            // the worker won't reuse this buffer while we hold it
+            synchronized (blended) {
+                g2.drawImage(blended, 0, 0, null);
+            }
+        } else {
+            drawFrame(g2, currentFrame, image, z, t, drawW, drawH);
+        }
 
-        g2.setTransform(at);
+        g2.dispose();
 
-        int cropX = (int)((imgW-(imgW/zoom))/turning);
-        int cropY = (int)((imgH-(imgH/zoom))/2.2);
+        g.setColor(UITheme.BORDER);
+        g.drawRect(x, y, drawW - 1, drawH - 1);
+    }
 
-        if((cropX + (int)(imgW/zoom)) > imgW){
-            cropX = imgW-(int)(imgW/zoom)-1;
+    /**
+     * Blits the cropped and scaled view of src. The view is rendered into the frame's
+     * surface only when the image, zoom, turning or size changed (or the accelerated
+     * surface lost its contents), so a steady-state repaint is a single drawImage.
+     */
+    private void drawFrame(Graphics2D g2, RenderedFrame frame, BufferedImage src,
+                           double z, double t, int drawW, int drawH) {
+        // unzoomed and already at panel size (ImageLoader delivers display-ready images):
+        // the image itself is the frame
+        if (z == 1 && src.getWidth() == drawW && src.getHeight() == drawH) {
+            g2.drawImage(src, 0, 0, null);
+            return;
         }
-        if((cropY + (int)(imgH/zoom)) > imgH){
-            cropY = imgH-(int)(imgH/zoom)-1;
+
+        if (!frame.isFor(src, z, t, drawW, drawH)) {
+            frame.retarget(src, z, t, drawW, drawH);
         }
 
-        BufferedImage croppedImage = image.getSubimage(cropX, cropY, (int)(imgW/zoom), (int)(imgH/zoom));
+        // a VolatileImage can lose its contents at any time (display change, VRAM pressure),
+        // so check after drawing and re-render once if that happened
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Image surface = prepareSurface(frame);
+            g2.drawImage(surface, 0, 0, null);
+            if (frame.accelerated == null || !frame.accelerated.contentsLost()) {
+                return;
+            }
+            frame.rendered = false;
+        }
+    }
 
-        if (prevImage != null && fadeAlpha < 1f) {
-            BufferedImage croppedPrevImage = prevImage.getSubimage(cropX, cropY, (int)(imgW/zoom), (int)(imgH/zoom));
-            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
-            g2.drawImage(croppedPrevImage, x, y, (int)(drawW/zoom), (int)(drawH/zoom), null);
+    private Image prepareSurface(RenderedFrame frame) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
 
-            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, fadeAlpha));
-            g2.drawImage(croppedImage, x, y, (int)(drawW/zoom), (int)(drawH/zoom), null);
-        } else {
-            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
-            g2.drawImage(croppedImage, x, y, (int)(drawW/zoom), (int)(drawH/zoom), null);
+        if (frame.accelerated == null && frame.fallback == null) {
+            // createVolatileImage returns null when headless or not yet displayable
+            frame.accelerated = createVolatileImage(frame.width, frame.height);
+            if (frame.accelerated == null) {
+                frame.fallback = gc != null
+                        ? gc.createCompatibleImage(frame.width, frame.height, Transparency.OPAQUE)
+                        : new BufferedImage(frame.width, frame.height, BufferedImage.TYPE_INT_RGB);
+            }
+            frame.rendered = false;
         }
 
-        g2.dispose();
+        if (frame.accelerated != null) {
+            int status = frame.accelerated.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                frame.release();
+                return prepareSurface(frame);
+            }
+            if (status == VolatileImage.IMAGE_RESTORED) {
+                frame.rendered = false;
+            }
+        }
 
-        g.setColor(UITheme.BORDER);
-        g.drawRect(x, y, drawW - 1, drawH - 1);
+        Image surface = frame.accelerated != null ? frame.accelerated : frame.fallback;
+        if (!frame.rendered) {
+            Graphics2D fg = (Graphics2D) surface.getGraphics();
+            try {
+                renderCrop(fg, frame.source, frame.zoom, frame.turning, frame.width, frame.height);
+            } finally {
+                fg.dispose();
+            }
+            frame.rendered = true;
+            frameRenders++;
+        }
+        return surface;
+    }
+
+    // the part of the street view visible at this zoom, shifted sideways by turning
+    static void renderCrop(Graphics2D g, BufferedImage src, double z, double t, int w, int h) {
+        int imgW = src.getWidth();
+        int imgH = src.getHeight();
+        int cropW = (int) (imgW / z);
+        int cropH = (int) (imgH / z);
+
+        int cropX = (int) ((imgW - (imgW / z)) / t);
+        int cropY = (int) ((imgH - (imgH / z)) / 2.2);
+
+        if ((cropX + cropW) > imgW) {
+            cropX = imgW - cropW - 1;
+        }
+        if ((cropY + cropH) > imgH) {
+            cropY = imgH - cropH - 1;
+        }
+
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(src, 0, 0, w, h, cropX, cropY, cropX + cropW, cropY + cropH, null);
+    }
+
+    /** True while a cross-fade is being composed. */
+    public boolean isFading() {
+        return fader.isFading();
+    }
+
+    /** How many blended fade frames the worker has produced. */
+    public long getComposedFadeFrames() {
+        return fader.getComposedFrames();
+    }
+
+    /** How many times the fade buffers had to be allocated. */
+    public long getFadeBufferAllocations() {
+        return fader.getBufferAllocations();
+    }
+
+    /** How many times a view had to be re-rendered rather than just blitted. */
+    public long getFrameRenders() {
+        return frameRenders;
     }
 
     /**
@@ -160,6 +253,9 @@ public class ImagePanel extends JPanel {
             lastHead = turn;
         }
 
+        double oldZoom = zoom;
+        double oldTurning = turning;
+
         zoom += dist*zoomCoef;
         if (zoom < 1.00) {
             zoom = 1.00;
@@ -174,37 +270,59 @@ public class ImagePanel extends JPanel {
         }
         lastHead = turn;
 
-        repaint();
+        // stopped and not turning: the cached frame is still correct
+        if (zoom != oldZoom || turning != oldTurning) {
+            repaint();
+        }
     }
 
+    /**
+     * Returns true if the two images have the same content, or if the second one is blank.
+     * Uses the fingerprints ImageLoader computed when the images were loaded, so this is
+     * O(1) on the EDT.
+     */
     public boolean bufferedImagesEqual(BufferedImage img1, BufferedImage img2) {
+        if (img1 == img2) return true;
+        if (img1 == null || img2 == null) return false;
 
-        int targetWidth = 800;
-        int targetHeight = 600;
+        ImageFingerprint second = ImageFingerprint.of(img2);
+        return second.isAllBlack() || ImageFingerprint.of(img1).sameContent(second);
+    }
 
-        BufferedImage sImg1 = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
-        BufferedImage sImg2 = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+    private static final class RenderedFrame {
+        BufferedImage source;
+        double zoom;
+        double turning;
+        int width;
+        int height;
 
-        Graphics g1 = sImg1.createGraphics();
-        g1.drawImage(img1, 0, 0, targetWidth, targetHeight, null);
-        g1.dispose();
+        VolatileImage accelerated; // null when a VolatileImage isn't available
+        BufferedImage fallback;
+        boolean rendered;
 
-        Graphics g2 = sImg2.createGraphics();
-        g2.drawImage(img2, 0, 0, targetWidth, targetHeight, null);
-        g2.dispose();
+        boolean isFor(BufferedImage src, double z, double t, int w, int h) {
+            return source == src && zoom == z && turning == t && width == w && height == h;
+        }
+
+        void retarget(BufferedImage src, double z, double t, int w, int h) {
+            if (w != width || h != height) {
+                release();
+            }
+            source = src;
+            zoom = z;
+            turning = t;
+            width = w;
+            height = h;
+            rendered = false;
+        }
 
-        try {
-            for (int x = 1; x < sImg1.getWidth(); x++) {
-                for (int y = 1; y < sImg1.getHeight(); y++) {
-                    //ensures that pixels are the same and that the second image isn't black
-                    if (sImg1.getRGB(x, y) != sImg2.getRGB(x, y) && sImg2.getRGB(x,y) != -16777216) {
-                        return false;
-                    }
-                }
+        void release() {
+            if (accelerated != null) {
+                accelerated.flush();
+                accelerated = null;
             }
-            return true;
-        } catch (Exception e){
-            return true;
+            fallback = null;
+            rendered = false;
         }
     }
 }
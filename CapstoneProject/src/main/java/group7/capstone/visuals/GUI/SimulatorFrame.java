@@ -74,6 +74,6 @@ public class SimulatorFrame extends JFrame {
     }
 
     public void setFooterStatus(String text) {
-        footerLabel.setText(text);
+        HudPanel.setIfChanged(footerLabel, text);
     }
 }
@@ -0,0 +1,113 @@
+package group7.capstone.visuals;
+
+/**
+ * Controls how ImageLoader turns a car pose into a cache key, and how far a
+ * cached image may be from the requested pose and still be shown as a fallback.
+ *
+ * Headings are snapped to buckets so a small wobble while standing still
+ * still lands on the same key (and the same Street View request).
+ */
+public class ImageCachePolicy {
+
+    private static final double METRES_PER_DEG_LAT = 111_320.0;
+
+    private int headingBucketDeg = 5;
+    private double distanceToleranceMeters = 15.0;
+    private int headingToleranceDeg = 20;
+    private boolean nearestFallbackEnabled = true;
+
+    public ImageCachePolicy() {
+    }
+
+    public ImageCachePolicy(int headingBucketDeg, double distanceToleranceMeters, int headingToleranceDeg) {
+        setHeadingBucketDeg(headingBucketDeg);
+        setDistanceToleranceMeters(distanceToleranceMeters);
+        setHeadingToleranceDeg(headingToleranceDeg);
+    }
+
+    /** Snaps a heading to the centre of its bucket, normalized to 0..359. */
+    public int quantizeHeading(int heading) {
+        int h = normalizeHeading(heading);
+        if (headingBucketDeg <= 1) return h;
+        int bucket = (int) Math.round((double) h / headingBucketDeg) * headingBucketDeg;
+        return normalizeHeading(bucket);
+    }
+
+    public String cacheKey(double lat, double lng, int heading) {
+        double roundedLat = Math.round(lat * 10000.0) / 10000.0;
+        double roundedLng = Math.round(lng * 10000.0) / 10000.0;
+        return String.format("%.4f_%.4f_%d", roundedLat, roundedLng, quantizeHeading(heading));
+    }
+
+    /**
+     * Returns true if a cached image taken at (cachedLat, cachedLng, cachedHeading)
+     * is close enough to stand in for the requested pose.
+     */
+    public boolean withinTolerance(double lat, double lng, int heading,
+                                   double cachedLat, double cachedLng, int cachedHeading) {
+        return distanceMeters(lat, lng, cachedLat, cachedLng) <= distanceToleranceMeters
+                && headingDelta(heading, cachedHeading) <= headingToleranceDeg;
+    }
+
+    /**
+     * Score used to pick the closest cached image. One degree of heading counts
+     * as much as half a metre of distance.
+     */
+    public double score(double lat, double lng, int heading,
+                        double cachedLat, double cachedLng, int cachedHeading) {
+        return distanceMeters(lat, lng, cachedLat, cachedLng) + 0.5 * headingDelta(heading, cachedHeading);
+    }
+
+    // equirectangular approximation, fine at the tens-of-metres scale we care about
+    static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dNorth = (lat2 - lat1) * METRES_PER_DEG_LAT;
+        double dEast = (lng2 - lng1) * METRES_PER_DEG_LAT * Math.cos(Math.toRadians((lat1 + lat2) * 0.5));
+        return Math.hypot(dNorth, dEast);
+    }
+
+    static int headingDelta(int a, int b) {
+        int d = Math.abs(normalizeHeading(a) - normalizeHeading(b));
+        return d > 180 ? 360 - d : d;
+    }
+
+    private static int normalizeHeading(int heading) {
+        int h = heading % 360;
+        if (h < 0) h += 360;
+        return h;
+    }
+
+    public int getHeadingBucketDeg() {
+        return headingBucketDeg;
+    }
+
+    public void setHeadingBucketDeg(int headingBucketDeg) {
+        if (headingBucketDeg < 1) throw new IllegalArgumentException("headingBucketDeg must be >= 1");
+        this.headingBucketDeg = headingBucketDeg;
+    }
+
+    public double getDistanceToleranceMeters() {
+        return distanceToleranceMeters;
+    }
+
+    public void setDistanceToleranceMeters(double distanceToleranceMeters) {
+        if (distanceToleranceMeters < 0) throw new IllegalArgumentException("distanceToleranceMeters must be >= 0");
+        this.distanceToleranceMeters = distanceToleranceMeters;
+    }
+
+    public int getHeadingToleranceDeg() {
+        return headingToleranceDeg;
+    }
+
+    public void setHeadingToleranceDeg(int headingToleranceDeg) {
+        if (headingToleranceDeg < 0) throw new IllegalArgumentException("headingToleranceDeg must be >= 0");
+        this.headingToleranceDeg = headingToleranceDeg;
+    }
+
+    public boolean isNearestFallbackEnabled() {
+        return nearestFallbackEnabled;
+    }
+
+    public void setNearestFallbackEnabled(boolean nearestFallbackEnabled) {
+        this.nearestFallbackEnabled = nearestFallbackEnabled;
+    }
+}
@@ -0,0 +1,123 @@
+package group7.capstone.visuals;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Identity of an image's content, computed once so comparisons are O(1).
+ *
+ * contentHash changes if any pixel changes, so two images with the same hash are treated
+ * as the same frame. perceptualHash is a 64-bit difference hash of a 9x8 grayscale
+ * thumbnail; images whose perceptual hashes differ in only a few bits look the same to
+ * a person (e.g. the same panorama re-encoded), so they count as near-duplicates.
+ *
+ * ImageLoader registers a fingerprint for every image it caches, so by the time an image
+ * reaches the GUI its fingerprint is already known. Images that were never registered
+ * are fingerprinted on first use. The registry holds images weakly, so evicted images
+ * are not kept alive by it.
+ */
+public final class ImageFingerprint {
+
+    private static final int DHASH_W = 9;
+    private static final int DHASH_H = 8;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Perceptual hashes this many bits apart or fewer are near-duplicates. */
+    public static final int NEAR_DUPLICATE_BITS = 4;
+
+    private static final Map<BufferedImage, ImageFingerprint> registry =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final long contentHash;
+    private final long perceptualHash;
+    private final boolean allBlack;
+
+    private ImageFingerprint(long contentHash, long perceptualHash, boolean allBlack) {
+        this.contentHash = contentHash;
+        this.perceptualHash = perceptualHash;
+        this.allBlack = allBlack;
+    }
+
+    /** Computes and remembers the fingerprint for an image. Call this off the EDT. */
+    public static ImageFingerprint register(BufferedImage image) {
+        ImageFingerprint fp = compute(image);
+        registry.put(image, fp);
+        return fp;
+    }
+
+    /** Returns the registered fingerprint, computing it now if the image was never registered. */
+    public static ImageFingerprint of(BufferedImage image) {
+        if (image == null) return null;
+        ImageFingerprint fp = registry.get(image);
+        return fp != null ? fp : register(image);
+    }
+
+    /**
+     * One pass over the pixels: a hash of every RGB value for exact identity, and the
+     * per-cell luminance sums for the difference hash.
+     */
+    static ImageFingerprint compute(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+
+        long hash = FNV_OFFSET;
+        hash = (hash ^ w) * FNV_PRIME;
+        hash = (hash ^ h) * FNV_PRIME;
+
+        double[] cellLum = new double[DHASH_W * DHASH_H];
+        int[] cellCount = new int[DHASH_W * DHASH_H];
+        boolean allBlack = true;
+
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            image.getRGB(0, y, w, 1, row, 0, w);
+            int cy = y * DHASH_H / h;
+            for (int x = 0; x < w; x++) {
+                int rgb = row[x] & 0xFFFFFF;
+                hash = (hash ^ rgb) * FNV_PRIME;
+                if (rgb != 0) allBlack = false;
+
+                int cell = cy * DHASH_W + x * DHASH_W / w;
+                cellLum[cell] += 0.299 * (rgb >> 16) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                cellCount[cell]++;
+            }
+        }
+
+        // bit set where a cell is brighter than its right-hand neighbour
+        long dHash = 0;
+        for (int cy = 0; cy < DHASH_H; cy++) {
+            for (int cx = 0; cx < DHASH_W - 1; cx++) {
+                int left = cy * DHASH_W + cx;
+                dHash <<= 1;
+                if (average(cellLum, cellCount, left) > average(cellLum, cellCount, left + 1)) {
+                    dHash |= 1;
+                }
+            }
+        }
+
+        return new ImageFingerprint(hash, dHash, allBlack);
+    }
+
+    // cells can be empty when the image is smaller than the 9x8 grid
+    private static double average(double[] sums, int[] counts, int i) {
+        return counts[i] == 0 ? 0 : sums[i] / counts[i];
+    }
+
+    public boolean sameContent(ImageFingerprint other) {
+        return other != null && contentHash == other.contentHash;
+    }
+
+    public boolean isNearDuplicate(ImageFingerprint other) {
+        return other != null
+                && (sameContent(other) || Long.bitCount(perceptualHash ^ other.perceptualHash) <= NEAR_DUPLICATE_BITS);
+    }
+
+    public long getContentHash() { return contentHash; }
+    public long getPerceptualHash() { return perceptualHash; }
+
+    /** True for blank frames, which the GUI treats as "nothing new". */
+    public boolean isAllBlack() { return allBlack; }
+}
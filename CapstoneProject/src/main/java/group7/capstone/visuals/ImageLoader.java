@@ -1,53 +1,98 @@
 package group7.capstone.visuals;
 
+import group7.capstone.APIController.ApiCall;
+import group7.capstone.APIController.ApiException;
 import group7.capstone.APIController.GoogleMapsAPIController;
-import group7.capstone.APIController.StreetViewImage;
+import group7.capstone.APIController.IoExecutor;
+import group7.capstone.caching.CacheConfig;
+import group7.capstone.caching.Eviction;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 /**
  * Manages loading, caching, and validation of Street View images
+ *
+ * Safe to call from any thread: the cache is a ConcurrentHashMap and stats are atomic.
+ * Fetches run on the shared IoExecutor, whose per-endpoint limits cap how many
+ * Street View / static map requests are in flight across every loader.
  */
 public class ImageLoader {
 
+    private static final double METRES_PER_DEG_LAT = 111_320.0;
+
+    // how long a load may wait in the scheduler before it is no longer worth sending
+    private static final long VISIBLE_DEADLINE_MS = 3_000;
+    private static final long PREFETCH_DEADLINE_MS = 10_000;
+
+    // size every cached image is delivered at, matching the street view request size
+    public static final int DISPLAY_WIDTH = 800;
+    public static final int DISPLAY_HEIGHT = 600;
+
     private final GoogleMapsAPIController apiController;
-    private final Map<String, BufferedImage> imageCache;
-    private final Map<String, Long> imageCacheTimestamps;
+    private final Map<String, CacheEntry> imageCache = new ConcurrentHashMap<>();
+    private final ImageCachePolicy cachePolicy;
+    private final ImageResampler resampler = new ImageResampler(DISPLAY_WIDTH, DISPLAY_HEIGHT);
 
-    private int maxCacheSize;
+    // only eviction needs to be serialized; reads and puts go straight to the map
+    private final Object evictionLock = new Object();
+
+    private volatile int maxCacheSize;
+    private volatile long maxCacheBytes = 256L * 1024 * 1024;
+    private final AtomicLong cachedBytes = new AtomicLong();
     private BufferedImage placeholderImage;
 
     // stats
-    private long cacheHits;
-    private long cacheMisses;
-    private long successfulLoads;
-    private long failedLoads;
-    private int currentlyLoading = 0;
-
-    private final ExecutorService executorService;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong nearestHits = new AtomicLong();
+    private final AtomicLong successfulLoads = new AtomicLong();
+    private final AtomicLong failedLoads = new AtomicLong();
+    private final AtomicLong supersededLoads = new AtomicLong();
+    private final AtomicLong expiredLoads = new AtomicLong();
+    private final AtomicLong duplicateFrames = new AtomicLong();
+    private final AtomicLong staleFallbacks = new AtomicLong();
+    private final AtomicLong frameStoreHits = new AtomicLong();
+    private final AtomicInteger currentlyLoading = new AtomicInteger();
+
+    private final IoExecutor ioExecutor;
+    private volatile boolean shutdown = false;
+
+    // optional off-heap tier behind the in-memory cache, owned by whoever set it
+    private volatile MappedFrameStore frameStore;
+
+    // street view and map loads supersede only their own kind
+    private final LoadChannel streetViewChannel = new LoadChannel();
+    private final LoadChannel mapChannel = new LoadChannel();
 
     public ImageLoader(GoogleMapsAPIController apiController) {
+        this(apiController, new ImageCachePolicy());
+    }
+
+    public ImageLoader(GoogleMapsAPIController apiController, ImageCachePolicy cachePolicy) {
+        this(apiController, cachePolicy, IoExecutor.getInstance());
+    }
+
+    public ImageLoader(GoogleMapsAPIController apiController, ImageCachePolicy cachePolicy, IoExecutor ioExecutor) {
         this.apiController = apiController;
-        this.imageCache = new LinkedHashMap<>();
-        this.imageCacheTimestamps = new HashMap<>();
+        this.cachePolicy = cachePolicy != null ? cachePolicy : new ImageCachePolicy();
+        this.ioExecutor = ioExecutor != null ? ioExecutor : IoExecutor.getInstance();
         this.maxCacheSize = 50;
-        this.cacheHits = 0;
-        this.cacheMisses = 0;
-        this.successfulLoads = 0;
-        this.failedLoads = 0;
-        this.executorService = Executors.newFixedThreadPool(4);
 
         createPlaceholderImage();
     }
 
     private void createPlaceholderImage() {
-        placeholderImage = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        placeholderImage = resampler.createCompatibleImage(DISPLAY_WIDTH, DISPLAY_HEIGHT);
 
         // fill with gray
         for (int y = 0; y < placeholderImage.getHeight(); y++) {
@@ -55,132 +100,364 @@ public class ImageLoader {
                 placeholderImage.setRGB(x, y, 0xCCCCCC);
             }
         }
+        ImageFingerprint.register(placeholderImage);
     }
 
     private String generateCacheKey(double lat, double lng, int heading) {
-        double roundedLat = Math.round(lat * 10000.0) / 10000.0;
-        double roundedLng = Math.round(lng * 10000.0) / 10000.0;
-        return String.format("%.4f_%.4f_%d", roundedLat, roundedLng, heading);
+        return cachePolicy.cacheKey(lat, lng, heading);
     }
 
     public BufferedImage loadStreetViewImage(double lat, double lng, int heading) {
+        return loadStreetViewImage(lat, lng, heading, null);
+    }
+
+    /**
+     * @param call cancellation handle for async loads, or null for a plain blocking load
+     * @return the image, a placeholder on failure, or null if the load was superseded
+     */
+    private BufferedImage loadStreetViewImage(double lat, double lng, int heading, ApiCall call) {
         String cacheKey = generateCacheKey(lat, lng, heading);
+        // request the bucket heading so the cached image matches its key
+        int requestHeading = cachePolicy.quantizeHeading(heading);
 
         // check cache first
-        if (imageCache.containsKey(cacheKey)) {
-            cacheHits++;
-            return imageCache.get(cacheKey);
+        BufferedImage cached = lookup(cacheKey);
+        if (cached != null) {
+            return cached;
         }
 
-        cacheMisses++;
+        BufferedImage stored = loadFromFrameStore(cacheKey, lat, lng, requestHeading);
+        if (stored != null) {
+            return stored;
+        }
 
         try {
-            StreetViewImage apiImage = apiController.GetStreetViewImage(lat, lng, heading);
+            byte[] bytes = fetchLimited(IoExecutor.Endpoint.STREET_VIEW, call,
+                    () -> apiController.fetchStreetViewBytes(lat, lng, requestHeading, call));
+
+            // superseded while queued or downloading: drop it before decoding
+            if (isSuperseded(call)) {
+                return null;
+            }
 
-            if (apiImage == null) {
-                failedLoads++;
-                return getPlaceholderImage();
+            if (bytes == null) {
+                return loadFailed(lat, lng, heading);
             }
 
-            BufferedImage image = apiImage.getImage();
+            BufferedImage image = resampler.decode(bytes);
 
             if (image == null) {
-                failedLoads++;
-                return getPlaceholderImage();
+                return loadFailed(lat, lng, heading);
             }
 
             if (!isImageValid(image)) {
-                failedLoads++;
-                return getPlaceholderImage();
+                return loadFailed(lat, lng, heading);
             }
 
-            BufferedImage formattedImage = formatImageForGUI(image);
-            storeInCache(cacheKey, formattedImage);
-            successfulLoads++;
+            BufferedImage formattedImage = resampler.fit(image);
+            storeInCache(cacheKey, formattedImage, lat, lng, requestHeading);
+            keepEncoded(cacheKey, bytes);
+            successfulLoads.incrementAndGet();
 
             return formattedImage;
 
-        } catch (IOException e) {
-            failedLoads++;
-            return getPlaceholderImage();
+        } catch (IOException | ApiException e) {
+            // ApiException covers non-2xx responses, exhausted retries and an open circuit
+            if (isSuperseded(call)) {
+                return null;
+            }
+            return loadFailed(lat, lng, heading);
         }
     }
 
     public BufferedImage loadMapImage(double lat, double lng, int heading) {
+        return loadMapImage(lat, lng, heading, null);
+    }
+
+    private BufferedImage loadMapImage(double lat, double lng, int heading, ApiCall call) {
         String cacheKey = generateCacheKey(lat, lng, heading);
 
-        if (imageCache.containsKey(cacheKey)) {
-            cacheHits++;
-            return imageCache.get(cacheKey);
+        BufferedImage cached = lookup(cacheKey);
+        if (cached != null) {
+            return cached;
         }
 
-        cacheMisses++;
+        BufferedImage stored = loadFromFrameStore(cacheKey, lat, lng, cachePolicy.quantizeHeading(heading));
+        if (stored != null) {
+            return stored;
+        }
 
         try {
-            BufferedImage image = apiController.GetMapImage(lat, lng);
+            byte[] bytes = fetchLimited(IoExecutor.Endpoint.STATIC_MAP, call,
+                    () -> apiController.fetchMapBytes(lat, lng, call));
+
+            if (isSuperseded(call)) {
+                return null;
+            }
+
+            if (bytes == null) {
+                return loadFailed(lat, lng, heading);
+            }
+
+            BufferedImage image = resampler.decode(bytes);
 
             if (image == null) {
-                failedLoads++;
-                return getPlaceholderImage();
+                return loadFailed(lat, lng, heading);
             }
 
             if (!isImageValid(image)) {
-                failedLoads++;
-                return getPlaceholderImage();
+                return loadFailed(lat, lng, heading);
             }
 
-            BufferedImage formattedImage = formatImageForGUI(image);
-            storeInCache(cacheKey, formattedImage);
-            successfulLoads++;
+            BufferedImage formattedImage = resampler.fit(image);
+            storeInCache(cacheKey, formattedImage, lat, lng, cachePolicy.quantizeHeading(heading));
+            keepEncoded(cacheKey, bytes);
+            successfulLoads.incrementAndGet();
             return formattedImage;
 
+        } catch (IOException | ApiException e) {
+            // ApiException covers non-2xx responses, exhausted retries and an open circuit
+            if (isSuperseded(call)) {
+                return null;
+            }
+            return loadFailed(lat, lng, heading);
+        }
+    }
+
+    // decodes a frame evicted from memory (or seen earlier in the drive) from the frame store
+    private BufferedImage loadFromFrameStore(String cacheKey, double lat, double lng, int heading) {
+        MappedFrameStore store = frameStore;
+        if (store == null) return null;
+
+        try {
+            BufferedImage image = store.load(cacheKey, resampler);
+            if (image == null) return null;
+            storeInCache(cacheKey, image, lat, lng, heading);
+            frameStoreHits.incrementAndGet();
+            return image;
         } catch (IOException e) {
-            failedLoads++;
-            return getPlaceholderImage();
+            return null;
+        }
+    }
+
+    private void keepEncoded(String cacheKey, byte[] bytes) {
+        MappedFrameStore store = frameStore;
+        if (store != null) {
+            store.put(cacheKey, bytes);
+        }
+    }
+
+    // a slightly-off cached image beats a grey placeholder when the API is failing
+    private BufferedImage loadFailed(double lat, double lng, int heading) {
+        failedLoads.incrementAndGet();
+        BufferedImage nearest = findNearestCachedImage(lat, lng, heading);
+        if (nearest != null) {
+            staleFallbacks.incrementAndGet();
+            return nearest;
+        }
+        return getPlaceholderImage();
+    }
+
+    private BufferedImage lookup(String cacheKey) {
+        CacheEntry entry = imageCache.get(cacheKey);
+        if (entry != null) {
+            entry.touch();
+            cacheHits.incrementAndGet();
+            return entry.image;
+        }
+        cacheMisses.incrementAndGet();
+        return null;
+    }
+
+    private boolean isSuperseded(ApiCall call) {
+        if (call != null && call.isCancelled()) {
+            supersededLoads.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private interface ApiFetch<T> {
+        T fetch() throws IOException;
+    }
+
+    // holds one of the endpoint's slots for the duration of the API call; a load that was
+    // superseded while waiting for its slot never reaches the API
+    private <T> T fetchLimited(IoExecutor.Endpoint endpoint, ApiCall call, ApiFetch<T> fetch) throws IOException {
+        try {
+            return ioExecutor.call(endpoint, () -> {
+                if (call != null && call.isCancelled()) return null;
+                return fetch.fetch();
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
         }
     }
 
     // async version
+    // On an exact cache miss the closest cached image within tolerance is handed to the
+    // callback straight away, then the callback fires again once the refined image arrives.
+    // A newer request supersedes any older one still pending: its HTTP call is cancelled,
+    // its result is dropped before decode, the callback is not invoked and the future
+    // completes with null. An image with the same content as the last one delivered is
+    // not handed to the callback again.
     public CompletableFuture<BufferedImage> loadImageAsync(double lat, double lng, int heading,
                                                            Consumer<BufferedImage> callback) {
-        currentlyLoading++;
-
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return loadStreetViewImage(lat, lng, heading);
-            } catch (Exception e) {
-                return getPlaceholderImage();
-            } finally {
-                currentlyLoading--;
-            }
-        }, executorService).thenApply(image -> {
-            if (callback != null) {
-                callback.accept(image);
-            }
-            return image;
-        });
+        BufferedImage cached = peekCache(generateCacheKey(lat, lng, heading));
+        if (cached != null) {
+            streetViewChannel.cancel();
+            return deliver(streetViewChannel, cached, callback);
+        }
+        serveNearestIfMissing(streetViewChannel, lat, lng, heading, callback);
+        ApiCall call = streetViewChannel.begin();
+        return submitLoad(IoExecutor.Priority.HIGH, VISIBLE_DEADLINE_MS, streetViewChannel, call,
+                () -> loadStreetViewImage(lat, lng, heading, call), callback);
     }
 
     public CompletableFuture<BufferedImage> loadMapAsync(double lat, double lng, int heading,
                                                          Consumer<BufferedImage> callback) {
-        currentlyLoading++;
+        BufferedImage cached = peekCache(generateCacheKey(lat, lng, heading));
+        if (cached != null) {
+            mapChannel.cancel();
+            return deliver(mapChannel, cached, callback);
+        }
+        serveNearestIfMissing(mapChannel, lat, lng, heading, callback);
+        ApiCall call = mapChannel.begin();
+        return submitLoad(IoExecutor.Priority.MEDIUM, VISIBLE_DEADLINE_MS, mapChannel, call,
+                () -> loadMapImage(lat, lng, heading, call), callback);
+    }
 
-        return CompletableFuture.supplyAsync(() -> {
+    /**
+     * Warms the cache with the street view image the car is expected to need next.
+     * Runs at the lowest priority, never supersedes the visible image, and is dropped
+     * if it can't start within the prefetch deadline.
+     */
+    public CompletableFuture<BufferedImage> prefetchImageAsync(double lat, double lng, int heading) {
+        if (imageCache.containsKey(generateCacheKey(lat, lng, heading))) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ApiCall call = new ApiCall();
+        return submitLoad(IoExecutor.Priority.LOW, PREFETCH_DEADLINE_MS, null, call,
+                () -> loadStreetViewImage(lat, lng, heading, call), null);
+    }
+
+    /** Prefetches the street view image the given distance ahead along the heading. */
+    public CompletableFuture<BufferedImage> prefetchAhead(double lat, double lng, int heading, double metres) {
+        double rHead = Math.toRadians(heading);
+        double aheadLat = lat + Math.cos(rHead) * metres / METRES_PER_DEG_LAT;
+        double aheadLng = lng + Math.sin(rHead) * metres / (METRES_PER_DEG_LAT * Math.cos(Math.toRadians(lat)));
+        return prefetchImageAsync(aheadLat, aheadLng, heading);
+    }
+
+    // cache check on the caller's thread, so a hit never queues behind network traffic
+    private BufferedImage peekCache(String cacheKey) {
+        CacheEntry entry = imageCache.get(cacheKey);
+        if (entry == null) return null;
+        entry.touch();
+        cacheHits.incrementAndGet();
+        return entry.image;
+    }
+
+    private CompletableFuture<BufferedImage> deliver(LoadChannel channel, BufferedImage image, Consumer<BufferedImage> callback) {
+        notify(channel, image, callback);
+        return CompletableFuture.completedFuture(image);
+    }
+
+    // hands the image to the callback unless it is the same frame this channel delivered last
+    private void notify(LoadChannel channel, BufferedImage image, Consumer<BufferedImage> callback) {
+        if (callback == null) return;
+        if (channel != null && !channel.markDelivered(image)) {
+            duplicateFrames.incrementAndGet();
+            return;
+        }
+        callback.accept(image);
+    }
+
+    // the endpoint slot is taken inside load(), after the priority scheduler has started the task.
+    // Prefetches (no channel) are not counted in getLoadingCount(), which Main throttles on.
+    private CompletableFuture<BufferedImage> submitLoad(IoExecutor.Priority priority, long deadlineMs,
+                                                        LoadChannel channel, ApiCall call,
+                                                        java.util.function.Supplier<BufferedImage> load,
+                                                        Consumer<BufferedImage> callback) {
+        if (shutdown) {
+            return CompletableFuture.completedFuture(getPlaceholderImage());
+        }
+        AtomicInteger loadingCounter = channel != null ? currentlyLoading : new AtomicInteger();
+        loadingCounter.incrementAndGet();
+
+        CompletableFuture<BufferedImage> future = ioExecutor.submit(priority, deadlineMs, () -> {
             try {
-                return loadMapImage(lat, lng, heading);
+                return load.get();
             } catch (Exception e) {
-                return getPlaceholderImage();
+                return call.isCancelled() ? null : getPlaceholderImage();
             } finally {
-                currentlyLoading--;
+                loadingCounter.decrementAndGet();
+                if (channel != null) channel.finish(call);
+            }
+        }).exceptionally(e -> {
+            // the task itself never throws, so it was either rejected or missed its deadline and never ran
+            loadingCounter.decrementAndGet();
+            if (channel != null) channel.finish(call);
+            if (e instanceof TimeoutException || e.getCause() instanceof TimeoutException) {
+                expiredLoads.incrementAndGet();
+                return null;
             }
-        }, executorService).thenApply(image -> {
-            if (callback != null) {
-                callback.accept(image);
+            return getPlaceholderImage();
+        });
+
+        return future.thenApply(image -> {
+            if (image != null && !call.isCancelled()) {
+                notify(channel, image, callback);
             }
             return image;
         });
     }
 
+    /** Cancels any pending async loads; their callbacks will not fire. */
+    public void cancelPendingLoads() {
+        streetViewChannel.cancel();
+        mapChannel.cancel();
+    }
+
+    private void serveNearestIfMissing(LoadChannel channel, double lat, double lng, int heading,
+                                       Consumer<BufferedImage> callback) {
+        if (callback == null) return;
+        if (imageCache.containsKey(generateCacheKey(lat, lng, heading))) return;
+
+        BufferedImage nearest = findNearestCachedImage(lat, lng, heading);
+        if (nearest != null) {
+            nearestHits.incrementAndGet();
+            notify(channel, nearest, callback);
+        }
+    }
+
+    /**
+     * Returns the cached image closest to the given pose that is within the policy's
+     * distance and heading tolerance, or null if there is none.
+     */
+    public BufferedImage findNearestCachedImage(double lat, double lng, int heading) {
+        if (!cachePolicy.isNearestFallbackEnabled()) return null;
+
+        CacheEntry best = null;
+        double bestScore = Double.POSITIVE_INFINITY;
+
+        for (CacheEntry entry : imageCache.values()) {
+            if (!cachePolicy.withinTolerance(lat, lng, heading, entry.lat, entry.lng, entry.heading)) continue;
+
+            double score = cachePolicy.score(lat, lng, heading, entry.lat, entry.lng, entry.heading);
+            if (score < bestScore) {
+                bestScore = score;
+                best = entry;
+            }
+        }
+
+        if (best == null) return null;
+        best.touch();
+        return best.image;
+    }
+
     private boolean isImageValid(BufferedImage image) {
         if (image == null) return false;
         if (image.getWidth() <= 0 || image.getHeight() <= 0) return false;
@@ -201,94 +478,191 @@ public class ImageLoader {
         return blackCount != pixels.length;
     }
 
-    private BufferedImage formatImageForGUI(BufferedImage image) {
-        if (image == null) return placeholderImage;
-
-        int targetWidth = 800;
-        int targetHeight = 600;
-
-        BufferedImage scaledImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
-        java.awt.Graphics2D g2d = scaledImage.createGraphics();
-        g2d.drawImage(image, 0, 0, targetWidth, targetHeight, null);
-        g2d.dispose();
-
-        return scaledImage;
-    }
-
-    private void storeInCache(String key, BufferedImage image) {
-        if (imageCache.size() >= maxCacheSize) {
-            evictOldestImage();
+    private void storeInCache(String key, BufferedImage image, double lat, double lng, int heading) {
+        // fingerprint here, on the loader thread, so the GUI's equality checks are free
+        ImageFingerprint.register(image);
+        CacheEntry entry = new CacheEntry(image, lat, lng, heading);
+        CacheEntry previous = imageCache.put(key, entry);
+        cachedBytes.addAndGet(entry.bytes - (previous != null ? previous.bytes : 0));
+        if (imageCache.size() > maxCacheSize || cachedBytes.get() > maxCacheBytes) {
+            trimToMaxSize();
         }
-
-        imageCache.put(key, image);
-        imageCacheTimestamps.put(key, System.currentTimeMillis());
     }
 
-    private void evictOldestImage() {
-        if (imageCache.isEmpty()) return;
-
-        String oldestKey = null;
-        long oldestTime = Long.MAX_VALUE;
-
-        for (Map.Entry<String, Long> entry : imageCacheTimestamps.entrySet()) {
-            if (entry.getValue() < oldestTime) {
-                oldestTime = entry.getValue();
-                oldestKey = entry.getKey();
+    /**
+     * Drops least-recently-used entries until the cache fits both its entry and byte
+     * budget. Victims are picked a batch at a time (see Eviction) and the lock is let go
+     * between batches, so shrinking a large cache doesn't stall loads.
+     */
+    private void trimToMaxSize() {
+        while (true) {
+            synchronized (evictionLock) {
+                int size = imageCache.size();
+                int excess = size - maxCacheSize;
+                long bytesOver = cachedBytes.get() - maxCacheBytes;
+                if (bytesOver > 0 && size > 0) {
+                    long avg = Math.max(1, cachedBytes.get() / size);
+                    excess = (int) Math.max(excess, (bytesOver + avg - 1) / avg);
+                }
+                if (excess <= 0) return;
+
+                for (Map.Entry<String, CacheEntry> e : Eviction.oldest(imageCache, en -> en.lastAccess, Math.min(excess, Eviction.BATCH))) {
+                    remove(e.getKey(), e.getValue());
+                }
             }
         }
+    }
 
-        if (oldestKey != null) {
-            imageCache.remove(oldestKey);
-            imageCacheTimestamps.remove(oldestKey);
+    private void remove(String key, CacheEntry entry) {
+        if (imageCache.remove(key, entry)) {
+            cachedBytes.addAndGet(-entry.bytes);
         }
     }
 
+    // pixel memory held by the image's raster
+    static long estimateBytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
     public BufferedImage getPlaceholderImage() {
         return placeholderImage != null ? placeholderImage :
-                new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+                new BufferedImage(DISPLAY_WIDTH, DISPLAY_HEIGHT, BufferedImage.TYPE_INT_RGB);
     }
 
     public BufferedImage getCachedImage(double lat, double lng, int heading) {
         String key = generateCacheKey(lat, lng, heading);
-        return imageCache.get(key);
+        CacheEntry entry = imageCache.get(key);
+        return entry != null ? entry.image : null;
     }
 
     public void clearCache() {
-        imageCache.clear();
-        imageCacheTimestamps.clear();
+        for (Map.Entry<String, CacheEntry> e : imageCache.entrySet()) {
+            remove(e.getKey(), e.getValue());
+        }
     }
 
-    public int getLoadingCount() { return currentlyLoading; }
+    public int getLoadingCount() { return currentlyLoading.get(); }
     public int getCacheSize() { return imageCache.size(); }
+    public long getCacheBytes() { return cachedBytes.get(); }
 
     public double getCacheHitRate() {
-        long total = cacheHits + cacheMisses;
+        long hits = cacheHits.get();
+        long total = hits + cacheMisses.get();
         if (total == 0) return 0.0;
-        return (double) cacheHits / total;
+        return (double) hits / total;
     }
 
     public String getImageLoadStats() {
         return String.format(
-                "Cache: %d/%d (Hit Rate: %.1f%%), Successful: %d, Failed: %d, Currently Loading: %d",
-                getCacheSize(), maxCacheSize, getCacheHitRate() * 100,
-                successfulLoads, failedLoads, currentlyLoading
+                "Cache: %d/%d, %d/%d MB (Hit Rate: %.1f%%), Successful: %d, Failed: %d, Currently Loading: %d",
+                getCacheSize(), maxCacheSize, cachedBytes.get() >> 20, maxCacheBytes >> 20, getCacheHitRate() * 100,
+                successfulLoads.get(), failedLoads.get(), currentlyLoading.get()
         );
     }
 
     public void setMaxCacheSize(int size) {
+        if (size <= 0) throw new IllegalArgumentException("size must be > 0");
         this.maxCacheSize = size;
-        while (imageCache.size() > maxCacheSize) {
-            evictOldestImage();
-        }
+        trimToMaxSize();
     }
-    //statistics getters
-    public long getCacheHits() { return cacheHits; }
-    public long getCacheMisses() { return cacheMisses; }
-    public long getSuccessfulLoads() { return successfulLoads; }
-    public long getFailedLoads() { return failedLoads; }
 
+    /** Pixel memory budget for the decoded image cache. */
+    public void setMaxCacheBytes(long bytes) {
+        if (bytes <= 0) throw new IllegalArgumentException("bytes must be > 0");
+        this.maxCacheBytes = bytes;
+        trimToMaxSize();
+    }
+
+    /**
+     * Keeps every fetched frame's encoded bytes in the store too, and checks it on a
+     * memory-cache miss before going to the API. Pass null to stop using a store.
+     */
+    public void setFrameStore(MappedFrameStore store) {
+        this.frameStore = store;
+    }
+
+    public MappedFrameStore getFrameStore() { return frameStore; }
+
+    /** Takes the image cache budgets from the config; use as a CacheConfig listener. */
+    public void applyConfig(CacheConfig config) {
+        maxCacheBytes = config.getImageCacheMaxBytes();
+        setMaxCacheSize(config.getImageCacheSize());
+    }
+    //statistics getters
+    public long getCacheHits() { return cacheHits.get(); }
+    public long getCacheMisses() { return cacheMisses.get(); }
+    public long getNearestHits() { return nearestHits.get(); }
+    public ImageCachePolicy getCachePolicy() { return cachePolicy; }
+    public long getSuccessfulLoads() { return successfulLoads.get(); }
+    public long getFailedLoads() { return failedLoads.get(); }
+    public long getSupersededLoads() { return supersededLoads.get(); }
+    public long getExpiredLoads() { return expiredLoads.get(); }
+    public long getDuplicateFrames() { return duplicateFrames.get(); }
+    public long getStaleFallbacks() { return staleFallbacks.get(); }
+    public long getFrameStoreHits() { return frameStoreHits.get(); }
+    public ImageResampler getResampler() { return resampler; }
+
+    // the I/O executor is shared, so only this loader stops accepting work
     public void shutdown() {
-        executorService.shutdown();
+        shutdown = true;
+        cancelPendingLoads();
         clearCache();
     }
+
+    // tracks the newest async load of one kind; starting a new one cancels the previous
+    private static class LoadChannel {
+        private final AtomicReference<ApiCall> latest = new AtomicReference<>();
+        private final AtomicReference<ImageFingerprint> lastDelivered = new AtomicReference<>();
+
+        ApiCall begin() {
+            ApiCall call = new ApiCall();
+            ApiCall previous = latest.getAndSet(call);
+            if (previous != null) {
+                previous.cancel();
+            }
+            return call;
+        }
+
+        void finish(ApiCall call) {
+            latest.compareAndSet(call, null);
+        }
+
+        void cancel() {
+            ApiCall previous = latest.getAndSet(null);
+            if (previous != null) {
+                previous.cancel();
+            }
+        }
+
+        /** Records the image as delivered; false if it has the same content as the previous one. */
+        boolean markDelivered(BufferedImage image) {
+            ImageFingerprint fp = ImageFingerprint.of(image);
+            ImageFingerprint previous = lastDelivered.getAndSet(fp);
+            return previous == null || !previous.sameContent(fp);
+        }
+    }
+
+    // cached image plus the pose it was fetched at, used for nearest-neighbour lookups
+    private static class CacheEntry {
+        final BufferedImage image;
+        final double lat;
+        final double lng;
+        final int heading;
+        final long bytes;
+        volatile long lastAccess;
+
+        CacheEntry(BufferedImage image, double lat, double lng, int heading) {
+            this.image = image;
+            this.bytes = estimateBytes(image);
+            this.lat = lat;
+            this.lng = lng;
+            this.heading = heading;
+            this.lastAccess = System.nanoTime();
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+    }
 }
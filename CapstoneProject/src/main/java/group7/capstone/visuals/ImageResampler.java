@@ -0,0 +1,255 @@
+package group7.capstone.visuals;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns encoded image bytes into a display-ready image of a fixed size in one step.
+ *
+ * Where the codec allows it the image is decoded with source subsampling, so a large
+ * download is never fully expanded just to be shrunk again. The result is written into
+ * an image created by the screen's GraphicsConfiguration, which Swing can blit without
+ * a per-paint colour conversion. If the decoded image already has the target size and
+ * a display-friendly type it is used as is, with no copy.
+ *
+ * Intermediate decode buffers are pooled by size and type, since every Street View
+ * response has the same dimensions.
+ */
+public class ImageResampler {
+
+    private static final int MAX_POOLED_PER_SHAPE = 4;
+
+    private final int targetWidth;
+    private final int targetHeight;
+    private final GraphicsConfiguration graphicsConfig;
+
+    private final Map<String, ConcurrentLinkedDeque<BufferedImage>> scratchPool = new ConcurrentHashMap<>();
+
+    private final AtomicLong subsampledDecodes = new AtomicLong();
+    private final AtomicLong directDecodes = new AtomicLong();
+    private final AtomicLong pooledBufferReuses = new AtomicLong();
+
+    public ImageResampler(int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("target size must be > 0");
+        }
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.graphicsConfig = defaultGraphicsConfiguration();
+    }
+
+    // null when running headless (tests, CI), in which case plain INT_RGB images are used
+    private static GraphicsConfiguration defaultGraphicsConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) return null;
+        try {
+            return GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice()
+                    .getDefaultConfiguration();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the bytes straight to the target size.
+     *
+     * @return the display-ready image, or null if the bytes are null or not a readable image
+     */
+    public BufferedImage decode(byte[] bytes) throws IOException {
+        if (bytes == null) return null;
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Decodes straight from a buffer, e.g. a view into MappedFrameStore, without copying
+     * the encoded bytes onto the heap first. The buffer's position is not changed.
+     */
+    public BufferedImage decode(ByteBuffer buffer) throws IOException {
+        if (buffer == null) return null;
+        return decode(new ByteBufferInputStream(buffer.duplicate()));
+    }
+
+    private BufferedImage decode(InputStream source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            if (in == null) return null;
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int srcW = reader.getWidth(0);
+                int srcH = reader.getHeight(0);
+
+                // only subsample by whole factors that still leave at least the target size
+                int factor = Math.max(1, Math.min(srcW / targetWidth, srcH / targetHeight));
+                int outW = (srcW + factor - 1) / factor;
+                int outH = (srcH + factor - 1) / factor;
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                    subsampledDecodes.incrementAndGet();
+                } else {
+                    directDecodes.incrementAndGet();
+                }
+
+                // if the decoded image will be copied into a display image anyway, decode
+                // into a pooled scratch buffer instead of allocating a fresh one
+                BufferedImage scratch = null;
+                boolean needsCopy = outW != targetWidth || outH != targetHeight;
+                ImageTypeSpecifier type = needsCopy ? poolableType(reader) : null;
+                if (type != null) {
+                    scratch = borrowScratch(type, outW, outH);
+                    param.setDestination(scratch);
+                }
+
+                BufferedImage decoded = reader.read(0, param);
+                try {
+                    return fit(decoded);
+                } finally {
+                    if (scratch != null) {
+                        returnScratch(scratch);
+                    }
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns an image of the target size in a display-compatible type. The input is
+     * returned unchanged if it already qualifies.
+     */
+    public BufferedImage fit(BufferedImage image) {
+        if (image == null) return null;
+        if (image.getWidth() == targetWidth && image.getHeight() == targetHeight && isDisplayReady(image)) {
+            return image;
+        }
+
+        BufferedImage out = createCompatibleImage(targetWidth, targetHeight);
+        Graphics2D g2d = out.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            g2d.dispose();
+        }
+        return out;
+    }
+
+    public BufferedImage createCompatibleImage(int width, int height) {
+        if (graphicsConfig != null) {
+            return graphicsConfig.createCompatibleImage(width, height, Transparency.OPAQUE);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private boolean isDisplayReady(BufferedImage image) {
+        if (graphicsConfig != null) {
+            return image.getColorModel().equals(graphicsConfig.getColorModel(Transparency.OPAQUE));
+        }
+        return image.getType() == BufferedImage.TYPE_INT_RGB;
+    }
+
+    // palette and custom layouts differ per image, so only plain RGB types are safe to share
+    private static ImageTypeSpecifier poolableType(ImageReader reader) throws IOException {
+        Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+        if (!types.hasNext()) return null;
+        ImageTypeSpecifier type = types.next();
+        switch (type.getBufferedImageType()) {
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                return type;
+            default:
+                return null;
+        }
+    }
+
+    private BufferedImage borrowScratch(ImageTypeSpecifier type, int width, int height) {
+        ConcurrentLinkedDeque<BufferedImage> pool = scratchPool.get(shapeKey(type.getBufferedImageType(), width, height));
+        BufferedImage pooled = pool != null ? pool.pollFirst() : null;
+        if (pooled != null) {
+            pooledBufferReuses.incrementAndGet();
+            return pooled;
+        }
+        return type.createBufferedImage(width, height);
+    }
+
+    private void returnScratch(BufferedImage scratch) {
+        ConcurrentLinkedDeque<BufferedImage> pool = scratchPool.computeIfAbsent(
+                shapeKey(scratch.getType(), scratch.getWidth(), scratch.getHeight()),
+                k -> new ConcurrentLinkedDeque<>());
+        // size() is approximate on a concurrent deque, which is fine for a soft cap
+        if (pool.size() < MAX_POOLED_PER_SHAPE) {
+            pool.offerFirst(scratch);
+        }
+    }
+
+    private static String shapeKey(int type, int width, int height) {
+        return type + ":" + width + "x" + height;
+    }
+
+    // ImageIO only reads streams; this one reads the buffer in place
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    public int getTargetWidth() { return targetWidth; }
+    public int getTargetHeight() { return targetHeight; }
+    public long getSubsampledDecodes() { return subsampledDecodes.get(); }
+    public long getDirectDecodes() { return directDecodes.get(); }
+    public long getPooledBufferReuses() { return pooledBufferReuses.get(); }
+}
@@ -0,0 +1,224 @@
+package group7.capstone.visuals;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Second cache tier for ImageLoader: keeps the encoded Street View frames of a whole
+ * drive in a memory-mapped file instead of on the heap, so thousands of frames stay
+ * available for rewind/replay without growing the heap or GC pauses.
+ *
+ * The file is split into fixed-size segments used as a ring. Frames are appended to the
+ * current segment; when the ring wraps, the oldest segment is reused and the frames in it
+ * are dropped from the index. Frames are stored as the bytes the API returned (JPEG),
+ * roughly 20x smaller than decoded pixels, and are decoded straight out of the mapping
+ * without copying them onto the heap first.
+ *
+ * The index uses the same lat/lng/heading keys as the in-memory cache. Writes are
+ * serialized; reads are lock-free and detect a segment that was reused under them.
+ */
+public class MappedFrameStore implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_BYTES = 32 * 1024 * 1024;
+
+    private final Path file;
+    private final boolean deleteOnClose;
+    private final FileChannel channel;
+    private final Segment[] segments;
+    private final int segmentBytes;
+
+    private final Map<String, Slot> index = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private int current = 0;
+
+    private final AtomicLong framesWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong recycledSegments = new AtomicLong();
+    private final AtomicLong torn = new AtomicLong();
+
+    /** A store of about maxBytes in a temporary file that is deleted on close. */
+    public static MappedFrameStore createTemp(long maxBytes) throws IOException {
+        Path file = Files.createTempFile("streetview-frames", ".bin");
+        file.toFile().deleteOnExit();
+        return new MappedFrameStore(file, maxBytes, DEFAULT_SEGMENT_BYTES, true);
+    }
+
+    public MappedFrameStore(Path file, long maxBytes, int segmentBytes, boolean deleteOnClose) throws IOException {
+        if (segmentBytes <= 0) throw new IllegalArgumentException("segmentBytes must be > 0");
+        if (maxBytes < 2L * segmentBytes) throw new IllegalArgumentException("maxBytes must hold at least two segments");
+
+        this.file = file;
+        this.deleteOnClose = deleteOnClose;
+        this.segmentBytes = segmentBytes;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        // each segment is its own mapping, since a single mapping is limited to 2 GB
+        int count = (int) Math.min(Integer.MAX_VALUE, maxBytes / segmentBytes);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentBytes, segmentBytes));
+        }
+    }
+
+    /**
+     * Appends a frame. A frame already stored under the key is replaced.
+     *
+     * @return false if the frame is larger than a segment and was not stored
+     */
+    public boolean put(String key, byte[] encoded) {
+        if (encoded == null || encoded.length == 0 || encoded.length > segmentBytes) return false;
+
+        synchronized (writeLock) {
+            Segment seg = segments[current];
+            if (seg.position + encoded.length > segmentBytes) {
+                current = (current + 1) % segments.length;
+                seg = segments[current];
+                if (seg.used) {
+                    recycle(current, seg);
+                }
+            }
+
+            int offset = seg.position;
+            ByteBuffer target = seg.buffer.duplicate();
+            target.position(offset);
+            target.put(encoded);
+            seg.position = offset + encoded.length;
+            seg.used = true;
+
+            // publishing through the index makes the bytes visible to readers
+            index.put(key, new Slot(current, seg.generation, offset, encoded.length));
+        }
+        framesWritten.incrementAndGet();
+        bytesWritten.addAndGet(encoded.length);
+        return true;
+    }
+
+    // the segment is about to be overwritten: bump its generation first, so readers
+    // still decoding an old frame from it notice, then forget its frames
+    private void recycle(int segmentIndex, Segment seg) {
+        seg.generation++;
+        // keep the frame writes that follow from becoming visible before the bump
+        VarHandle.storeStoreFence();
+        seg.position = 0;
+        index.values().removeIf(slot -> slot.segment == segmentIndex);
+        recycledSegments.incrementAndGet();
+    }
+
+    public boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * A read-only view of the stored bytes, backed by the mapping (no copy). Only valid
+     * until the segment is reused, which load() checks for.
+     */
+    public ByteBuffer view(String key) {
+        Slot slot = index.get(key);
+        if (slot == null) return null;
+        return view(slot);
+    }
+
+    private ByteBuffer view(Slot slot) {
+        ByteBuffer view = segments[slot.segment].buffer.duplicate();
+        view.position(slot.offset);
+        view.limit(slot.offset + slot.length);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Decodes the frame stored under key to a display-ready image.
+     *
+     * @return the image, or null if the key isn't stored or its segment was reused meanwhile
+     */
+    public BufferedImage load(String key, ImageResampler resampler) throws IOException {
+        Slot slot = index.get(key);
+        if (slot == null || segments[slot.segment].generation != slot.generation) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        BufferedImage image = resampler.decode(view(slot));
+        VarHandle.loadLoadFence();
+
+        // overwritten while decoding: whatever came out may be a mix of two frames
+        if (segments[slot.segment].generation != slot.generation) {
+            torn.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return image;
+    }
+
+    public int getFrameCount() { return index.size(); }
+    public long getCapacityBytes() { return (long) segments.length * segmentBytes; }
+    public long getFramesWritten() { return framesWritten.get(); }
+    public long getBytesWritten() { return bytesWritten.get(); }
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getRecycledSegments() { return recycledSegments.get(); }
+    public long getTornReads() { return torn.get(); }
+
+    public String getStats() {
+        return String.format("FrameStore - frames=%d, capacity=%d MB, written=%d MB, hits=%d, misses=%d, recycled=%d",
+                getFrameCount(), getCapacityBytes() >> 20, bytesWritten.get() >> 20,
+                hits.get(), misses.get(), recycledSegments.get());
+    }
+
+    /**
+     * Closes the file. The mappings themselves are released by the GC, so on Windows the
+     * file may only be deleted at exit.
+     */
+    @Override
+    public void close() throws IOException {
+        index.clear();
+        channel.close();
+        if (deleteOnClose) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // still mapped on some platforms; deleteOnExit takes care of it
+            }
+        }
+    }
+
+    private static final class Segment {
+        final MappedByteBuffer buffer;
+        // written under writeLock, read by lock-free readers
+        volatile int generation;
+        int position;
+        boolean used;
+
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private static final class Slot {
+        final int segment;
+        final int generation;
+        final int offset;
+        final int length;
+
+        Slot(int segment, int generation, int offset, int length) {
+            this.segment = segment;
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
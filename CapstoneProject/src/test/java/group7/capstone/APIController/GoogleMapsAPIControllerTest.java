@@ -0,0 +1,80 @@
+package group7.capstone.APIController;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoogleMapsAPIControllerTest {
+
+    private MockMapsServer server;
+    private GoogleMapsAPIController api;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockMapsServer(0, 11L).start();
+        APIConfig.setEndpoints(server.endpoints());
+        api = new GoogleMapsAPIController();
+        api.setRetryPolicy(new RetryPolicy(3, 1, 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        APIConfig.setEndpoints(null);
+        server.stop();
+    }
+
+    @Test
+    void serverErrorsAreRetriedThenReported() {
+        server.setErrorRate(1.0);
+
+        ApiException e = assertThrows(ApiException.class, () -> api.getStreet(45.42, -75.69, 90));
+
+        assertEquals(503, e.getStatusCode());
+        assertEquals(3, server.getSnapToRoadsRequests());
+        assertEquals(2, api.getRetries());
+    }
+
+    @Test
+    void openCircuitFailsFastWithoutCallingTheApi() throws Exception {
+        server.setErrorRate(1.0);
+        api.setRetryPolicy(RetryPolicy.none());
+        CircuitBreaker breaker = api.getCircuitBreaker(IoExecutor.Endpoint.STREET_VIEW);
+        breaker.setFailureThreshold(2);
+        breaker.setOpenMs(50);
+
+        assertThrows(ApiException.class, () -> api.fetchStreetViewBytes(45.42, -75.69, 90, null));
+        assertThrows(ApiException.class, () -> api.fetchStreetViewBytes(45.42, -75.69, 90, null));
+        assertThrows(CircuitOpenException.class, () -> api.fetchStreetViewBytes(45.42, -75.69, 90, null));
+        assertEquals(2, server.getStreetViewRequests());
+
+        // other endpoints have their own breaker
+        assertEquals(CircuitBreaker.State.CLOSED, api.getCircuitBreaker(IoExecutor.Endpoint.SNAP_TO_ROADS).getState());
+
+        // after the open period one trial call goes through and, once it succeeds, closes the circuit
+        Thread.sleep(60);
+        server.setErrorRate(0.0);
+        assertNotNull(api.fetchStreetViewBytes(45.42, -75.69, 90, null));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void recoveredServerSucceedsWithinRetries() {
+        server.setErrorRate(0.5);
+
+        // seeded server: some calls fail, every call still succeeds within its retries
+        int succeeded = 0;
+        for (int i = 0; i < 5; i++) {
+            try {
+                api.getStreet(45.42, -75.69, 90);
+                succeeded++;
+            } catch (ApiException ignored) {
+            }
+        }
+
+        assertTrue(succeeded >= 4);
+        assertTrue(server.getInjectedErrors() > 0);
+        assertTrue(api.getRetries() > 0);
+    }
+}
@@ -0,0 +1,157 @@
+package group7.capstone.APIController;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IoExecutorTest {
+
+    private final IoExecutor io = new IoExecutor();
+
+    @AfterEach
+    void tearDown() {
+        io.shutdown();
+    }
+
+    @Test
+    void criticalRequestJumpsAheadOfQueuedImagery() throws Exception {
+        io.setSharedLimit(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        // occupies the only shared slot
+        CompletableFuture<Void> blocker = io.submit(IoExecutor.Priority.LOW, 0, () -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+
+        CompletableFuture<Void> prefetch = io.submit(IoExecutor.Priority.LOW, 0, () -> { order.add("prefetch"); return null; });
+        CompletableFuture<Void> image = io.submit(IoExecutor.Priority.HIGH, 0, () -> { order.add("image"); return null; });
+        CompletableFuture<Void> road = io.submit(IoExecutor.Priority.CRITICAL, 0, () -> { order.add("road"); return null; });
+
+        // road data is not held back by the saturated shared cap
+        road.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("road"), order);
+        assertEquals(1, io.getQueued(IoExecutor.Priority.LOW));
+        assertEquals(1, io.getQueued(IoExecutor.Priority.HIGH));
+
+        release.countDown();
+        CompletableFuture.allOf(blocker, prefetch, image).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("road", "image", "prefetch"), order);
+    }
+
+    @Test
+    void requestPastDeadlineIsNeverStarted() throws Exception {
+        io.setClassLimit(IoExecutor.Priority.LOW, 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> blocker = io.submit(IoExecutor.Priority.LOW, 0, () -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        CompletableFuture<String> late = io.submit(IoExecutor.Priority.LOW, 1, () -> "sent");
+
+        Thread.sleep(20);
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    void missedDeadlineFailsWhileAllSlotsAreBusy() throws Exception {
+        io.setClassLimit(IoExecutor.Priority.HIGH, 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> blocker = io.submit(IoExecutor.Priority.HIGH, 0, () -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        CompletableFuture<String> late = io.submit(IoExecutor.Priority.HIGH, 20, () -> "sent");
+
+        // reported close to the deadline, not when the blocker finally frees its slot
+        ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(2, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertFalse(blocker.isDone());
+        assertEquals(0, io.getQueued(IoExecutor.Priority.HIGH));
+
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void onlyTheEarliestQueuedDeadlineHasASweep() throws Exception {
+        // started at once: nothing left waiting, so nothing to sweep for
+        for (int i = 0; i < 10; i++) {
+            io.submit(IoExecutor.Priority.HIGH, 60_000, () -> null).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(0, io.getPendingSweeps());
+
+        io.setClassLimit(IoExecutor.Priority.HIGH, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> blocker = io.submit(IoExecutor.Priority.HIGH, 0, () -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+
+        List<CompletableFuture<String>> queued = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            queued.add(io.submit(IoExecutor.Priority.HIGH, 60_000 - i, () -> "sent"));
+        }
+        queued.add(io.submit(IoExecutor.Priority.HIGH, 30, () -> "sent"));
+        assertEquals(1, io.getPendingSweeps());
+
+        // the 30 ms one still fails on time, the rest keep waiting under one sweep
+        CompletableFuture<String> soonest = queued.get(queued.size() - 1);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> soonest.get(2, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertEquals(20, io.getQueued(IoExecutor.Priority.HIGH));
+        assertEquals(1, io.getPendingSweeps());
+
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 20; i++) {
+            assertEquals("sent", queued.get(i).get(5, TimeUnit.SECONDS));
+        }
+        // the last completion's dispatch cancels the sweep
+        long deadline = System.currentTimeMillis() + 2000;
+        while (io.getPendingSweeps() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, io.getPendingSweeps());
+    }
+
+    @Test
+    void endpointLimitCapsConcurrentCalls() throws Exception {
+        io.setConcurrencyLimit(IoExecutor.Endpoint.STATIC_MAP, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = io.submit(IoExecutor.Endpoint.STATIC_MAP, () -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = io.submit(IoExecutor.Endpoint.STATIC_MAP, () -> null);
+
+        Thread.sleep(20);
+        assertEquals(1, io.getInFlight(IoExecutor.Endpoint.STATIC_MAP));
+        assertFalse(second.isDone());
+
+        release.countDown();
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        assertEquals(0, io.getInFlight(IoExecutor.Endpoint.STATIC_MAP));
+    }
+}
@@ -0,0 +1,92 @@
+package group7.capstone.APIController;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MockMapsServerTest {
+
+    private MockMapsServer server;
+    private GoogleMapsAPIController api;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockMapsServer(0, 7L).start();
+        APIConfig.setEndpoints(server.endpoints());
+        api = new GoogleMapsAPIController();
+    }
+
+    @AfterEach
+    void tearDown() {
+        APIConfig.setEndpoints(null);
+        server.stop();
+    }
+
+    @Test
+    void roadRequestsAreSnappedToTheSyntheticGrid() {
+        APIResponseDomain road = api.getStreet(45.4191133, -75.6995299, 170);
+
+        List<APIResponseDomain.SnappedPoint> points = road.getSnappedPoints();
+        assertTrue(points.size() >= 11);
+        assertEquals(1, server.getSnapToRoadsRequests());
+
+        // grid streets run north-south or east-west, and gaps are filled in every 10 m
+        for (int i = 1; i < points.size(); i++) {
+            APIResponseDomain.LatLng a = points.get(i - 1).getLocation();
+            APIResponseDomain.LatLng b = points.get(i).getLocation();
+            double dNorth = (b.getLatitude() - a.getLatitude()) * 111_320.0;
+            double dEast = (b.getLongitude() - a.getLongitude()) * 111_320.0 * Math.cos(Math.toRadians(a.getLatitude()));
+            assertTrue(Math.abs(dNorth) < 1e-6 || Math.abs(dEast) < 1e-6, "step " + i + " is not along a street");
+            assertTrue(Math.hypot(dNorth, dEast) <= 10.5, "step " + i + " is longer than the interpolation step");
+        }
+    }
+
+    @Test
+    void localEndpointsKeepTheConfiguredPathsAndQueries() {
+        EndpointProvider local = EndpointProvider.local("http://localhost:8089/");
+
+        assertEquals("http://localhost:8089/maps/api/streetview?size=800x600&fov=120", local.streetViewUrl());
+        assertEquals("http://localhost:8089/v1/snapToRoads", local.snapToRoadsUrl());
+        assertEquals("http://localhost:8089/maps/api/staticmap?zoom=16&size=400x400", local.staticMapUrl());
+
+        String original = APIConfig.Base_URL_MAP;
+        try {
+            APIConfig.Base_URL_MAP = "http://maps.googleapis.com/maps/api/staticmap?zoom=17&size=640x640";
+            assertEquals("http://localhost:8089/maps/api/staticmap?zoom=17&size=640x640", local.staticMapUrl());
+        } finally {
+            APIConfig.Base_URL_MAP = original;
+        }
+    }
+
+    @Test
+    void imagesAreServedAtTheRequestedSize() throws Exception {
+        BufferedImage streetView = GoogleMapsAPIController.decodeImage(api.fetchStreetViewBytes(45.42, -75.69, 90, null));
+        BufferedImage map = api.GetMapImage(45.42, -75.69);
+
+        assertEquals(800, streetView.getWidth());
+        assertEquals(600, streetView.getHeight());
+        assertEquals(400, map.getWidth());
+        assertEquals(1, server.getStreetViewRequests());
+        assertEquals(1, server.getStaticMapRequests());
+    }
+
+    @Test
+    void configuredErrorRateAndLatencyAreApplied() {
+        api.setRetryPolicy(RetryPolicy.none());
+        server.setErrorRate(1.0);
+        server.setLatencyMs(50);
+
+        long start = System.nanoTime();
+        ApiException e = assertThrows(ApiException.class, () -> api.fetchStreetViewBytes(45.42, -75.69, 90, null));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(503, e.getStatusCode());
+        assertEquals(1, server.getInjectedErrors());
+        assertTrue(elapsedMs >= 50);
+    }
+}
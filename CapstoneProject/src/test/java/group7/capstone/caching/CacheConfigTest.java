@@ -0,0 +1,54 @@
+package group7.capstone.caching;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheConfigTest {
+
+    @Test
+    void loadsValuesFromFileAndKeepsDefaultsForTheRest() throws Exception {
+        Path file = Files.createTempFile("cache_config", ".properties");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, "max.cache.size=100\nmax.cache.age.ms=3600000\nimage.cache.size=oops\n");
+
+        CacheConfig config = new CacheConfig(file);
+        config.load();
+
+        assertEquals(100, config.getRoadCacheSize());
+        assertEquals(3_600_000L, config.getRoadMaxAgeMs());
+        assertEquals(50, config.getImageCacheSize());
+        assertEquals(2.0, config.getPreloadDistanceKm());
+    }
+
+    @Test
+    void listenersSeeEveryChange() {
+        CacheConfig config = new CacheConfig();
+        AtomicInteger calls = new AtomicInteger();
+
+        config.addListener(c -> calls.incrementAndGet());
+        assertEquals(1, calls.get());
+
+        config.setRoadCacheSize(10);
+        assertEquals(2, calls.get());
+        assertThrows(IllegalArgumentException.class, () -> config.setRoadSoftTtlMs(0));
+        assertThrows(IllegalArgumentException.class, () -> config.setRoadSoftTtlMs(config.getRoadMaxAgeMs()));
+        assertThrows(IllegalArgumentException.class, () -> config.setRoadMaxAgeMs(config.getRoadSoftTtlMs()));
+    }
+
+    @Test
+    void oldestReturnsTheSmallestStampsInOrder() {
+        Map<String, Long> stamps = Map.of("a", 5L, "b", 1L, "c", 9L, "d", 3L);
+
+        List<Map.Entry<String, Long>> oldest = Eviction.oldest(stamps, Long::longValue, 2);
+
+        assertEquals("b", oldest.get(0).getKey());
+        assertEquals("d", oldest.get(1).getKey());
+    }
+}
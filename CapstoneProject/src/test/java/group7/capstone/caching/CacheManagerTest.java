@@ -25,7 +25,7 @@ class CacheManagerTest {
     void expiredEntryCallsApiAgain() throws InterruptedException {
         FakeGoogleMapsApi api = new FakeGoogleMapsApi();
         RoadApiCacheManager cacheManager = new RoadApiCacheManager(api);
-        cacheManager.setMaxAgeMs(1);
+        cacheManager.setMaxAgeMs(2);
 
         cacheManager.getStreet(45.4215, -75.6972, 90);
         Thread.sleep(5);
@@ -34,6 +34,77 @@ class CacheManagerTest {
         assertEquals(2, api.getStreetCalls);
     }
 
+    @Test
+    void softExpiredEntryIsServedWhileRefreshingInBackground() throws InterruptedException {
+        FakeGoogleMapsApi api = new FakeGoogleMapsApi();
+        RoadApiCacheManager cacheManager = new RoadApiCacheManager(api);
+        cacheManager.setSoftTtlMs(1);
+
+        APIResponseDomain first = cacheManager.getStreet(45.4215, -75.6972, 90);
+        Thread.sleep(5);
+        APIResponseDomain stale = cacheManager.getStreet(45.4215, -75.6972, 90);
+        assertSame(first, stale);
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (api.getStreetCalls < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(20);
+
+        APIResponseDomain refreshed = cacheManager.getStreet(45.4215, -75.6972, 90);
+        assertNotSame(first, refreshed);
+        assertTrue(cacheManager.getRevalidations() >= 1);
+        assertEquals(0, cacheManager.getStats().indexOf("RoadCache"));
+    }
+
+    @Test
+    void softTtlStaysBelowTheHardTtl() {
+        RoadApiCacheManager cacheManager = new RoadApiCacheManager(new FakeGoogleMapsApi());
+        cacheManager.setMaxAgeMs(10_000);
+
+        assertThrows(IllegalArgumentException.class, () -> cacheManager.setSoftTtlMs(0));
+        assertThrows(IllegalArgumentException.class, () -> cacheManager.setSoftTtlMs(10_000));
+        assertThrows(IllegalArgumentException.class, () -> cacheManager.setMaxAgeMs(-1));
+        assertThrows(IllegalArgumentException.class, () -> cacheManager.setTtls(5_000, 5_000));
+
+        // lowering the hard TTL below the soft one pulls the soft TTL down with it
+        cacheManager.setSoftTtlMs(8_000);
+        cacheManager.setMaxAgeMs(4_000);
+        assertEquals(2_000, cacheManager.getSoftTtlMs());
+        assertThrows(IllegalArgumentException.class, () -> cacheManager.setSoftTtlMs(4_000));
+    }
+
+    @Test
+    void tinyHardTtlKeepsAPositiveSoftTtl() {
+        RoadApiCacheManager cacheManager = new RoadApiCacheManager(new FakeGoogleMapsApi());
+
+        // no room for a soft TTL below 1 ms
+        assertThrows(IllegalArgumentException.class, () -> cacheManager.setMaxAgeMs(1));
+        assertEquals(60_000, cacheManager.getSoftTtlMs());
+
+        cacheManager.setMaxAgeMs(2);
+        assertEquals(2, cacheManager.getMaxAgeMs());
+        assertEquals(1, cacheManager.getSoftTtlMs());
+
+        cacheManager.setMaxAgeMs(3);
+        assertEquals(1, cacheManager.getSoftTtlMs());
+    }
+
+    @Test
+    void expiredEntryIsServedWhenApiFails() throws InterruptedException {
+        FakeGoogleMapsApi api = new FakeGoogleMapsApi();
+        RoadApiCacheManager cacheManager = new RoadApiCacheManager(api);
+        cacheManager.setMaxAgeMs(2);
+
+        APIResponseDomain first = cacheManager.getStreet(45.4215, -75.6972, 90);
+        Thread.sleep(5);
+        api.failing = true;
+        APIResponseDomain second = cacheManager.getStreet(45.4215, -75.6972, 90);
+
+        assertSame(first, second);
+        assertEquals(1, cacheManager.getStaleServed());
+    }
+
     @Test
     void normalizedHeadingUsesSameCacheKey() {
         FakeGoogleMapsApi api = new FakeGoogleMapsApi();
@@ -45,12 +116,40 @@ class CacheManagerTest {
         assertEquals(1, api.getStreetCalls);
     }
 
+    @Test
+    void shrinkingThroughConfigEvictsOldestEntries() throws InterruptedException {
+        FakeGoogleMapsApi api = new FakeGoogleMapsApi();
+        RoadApiCacheManager cacheManager = new RoadApiCacheManager(api);
+        CacheConfig config = new CacheConfig();
+        config.addListener(cacheManager::applyConfig);
+
+        for (int i = 0; i < 40; i++) {
+            cacheManager.getStreet(45.0 + i * 0.001, -75.0, 0);
+            Thread.sleep(1);
+        }
+        assertEquals(40, cacheManager.getCacheSize());
+
+        config.setRoadCacheSize(5);
+        assertEquals(5, cacheManager.getCacheSize());
+
+        // the newest entry survived, the first one didn't
+        int calls = api.getStreetCalls;
+        cacheManager.getStreet(45.0 + 39 * 0.001, -75.0, 0);
+        assertEquals(calls, api.getStreetCalls);
+        cacheManager.getStreet(45.0, -75.0, 0);
+        assertEquals(calls + 1, api.getStreetCalls);
+    }
+
     private static class FakeGoogleMapsApi extends GoogleMapsAPIController {
-        int getStreetCalls = 0;
+        volatile int getStreetCalls = 0;
+        volatile boolean failing = false;
 
         @Override
         public APIResponseDomain getStreet(double lat, double lon, int head) {
             getStreetCalls++;
+            if (failing) {
+                throw new RuntimeException("api down");
+            }
 
             APIResponseDomain response = new APIResponseDomain();
             APIResponseDomain.SnappedPoint point = new APIResponseDomain.SnappedPoint();
@@ -0,0 +1,58 @@
+package group7.capstone.technicalsubsystem;
+
+import com.jme3.math.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalTangentPlaneTest {
+
+    private final LocalTangentPlane plane = new LocalTangentPlane(45.4191133, -75.6995299);
+
+    @Test
+    void originMapsToZeroAndAxesPointEastAndNorth() {
+        Vector3f origin = plane.toLocal(45.4191133, -75.6995299);
+        assertEquals(0f, origin.x, 1e-6f);
+        assertEquals(0f, origin.z, 1e-6f);
+
+        // one arc-second of latitude is about 30.87 m at this latitude
+        Vector3f north = plane.toLocal(45.4191133 + 1.0 / 3600, -75.6995299);
+        assertEquals(0f, north.x, 1e-3f);
+        assertEquals(30.87f, north.z, 0.01f);
+
+        Vector3f east = plane.toLocal(45.4191133, -75.6995299 + 0.01);
+        assertTrue(east.x > 780f && east.x < 785f);
+    }
+
+    @Test
+    void inverseRoundTripsWithinAMillimetre() {
+        double[] en = new double[2];
+        double[] geo = new double[2];
+        for (int i = -5; i <= 5; i++) {
+            double lat = 45.4191133 + i * 0.004;
+            double lon = -75.6995299 - i * 0.006;
+            plane.toLocal(lat, lon, en);
+            plane.toGeodetic(en[0], en[1], geo);
+
+            // 1e-8 deg is about a millimetre
+            assertEquals(lat, geo[0], 1e-8);
+            assertEquals(lon, geo[1], 1e-8);
+        }
+    }
+
+    @Test
+    void batchMatchesSinglePointConversion() {
+        double[] lats = { 45.40, 45.41, 45.42 };
+        double[] lons = { -75.70, -75.69, -75.68 };
+        float[] east = new float[3];
+        float[] north = new float[3];
+
+        plane.toLocal(lats, lons, 3, east, north);
+
+        for (int i = 0; i < 3; i++) {
+            Vector3f p = plane.toLocal(lats[i], lons[i]);
+            assertEquals(p.x, east[i], 1e-3f);
+            assertEquals(p.z, north[i], 1e-3f);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package group7.capstone.technicalsubsystem;
+
+import com.jme3.math.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhysicsRoadSegmentTest {
+
+    private final PhysicsRoadSegment seg =
+            new PhysicsRoadSegment(new Vector3f(0, 0, 0), new Vector3f(30, 0, 40), 2, 3.7f, null);
+
+    @Test
+    void geometryIsPrecomputed() {
+        assertEquals(50f, seg.getLength(), 1e-4f);
+        assertEquals(0.6f, seg.getDirX(), 1e-6f);
+        assertEquals(0.8f, seg.getDirZ(), 1e-6f);
+        assertEquals(-0.8f, seg.getRightX(), 1e-6f);
+        assertEquals(0.6f, seg.getRightZ(), 1e-6f);
+        // two 3.7 m lanes are narrower than the 4 m minimum, plus 1 m pad
+        assertEquals(5f, seg.getCorridorHalfWidth(), 1e-6f);
+        assertTrue(seg.boundsContain(15, 20, 0));
+        assertFalse(seg.boundsContain(40, 0, 1));
+    }
+
+    @Test
+    void closestPointMatchesProjection() {
+        // 10 m to the right of the midpoint
+        float px = 15 + 10 * seg.getRightX();
+        float pz = 20 + 10 * seg.getRightZ();
+
+        float t = seg.closestT(px, pz);
+        assertEquals(0.5f, t, 1e-5f);
+        assertEquals(100f, seg.distanceSqAt(px, pz, t), 1e-3f);
+
+        assertEquals(0f, seg.closestT(-5, -5));
+        assertEquals(1f, seg.closestT(60, 80));
+    }
+
+    @Test
+    void degenerateSegmentProjectsOntoItsStart() {
+        PhysicsRoadSegment point = new PhysicsRoadSegment(new Vector3f(1, 0, 1), new Vector3f(1, 0, 1), 1, 3f, null);
+        assertEquals(0f, point.closestT(5, 5));
+        assertEquals(1f, point.getDirZ());
+    }
+}
@@ -0,0 +1,68 @@
+package group7.capstone.technicalsubsystem;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolylineSimplifierTest {
+
+    @Test
+    void straightLineKeepsOnlyEnoughPointsForTheSegmentCap() {
+        int n = 101; // 5 m apart, 500 m in total
+        float[] x = new float[n];
+        float[] z = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (i % 2 == 0) ? 0.05f : -0.05f; // jitter well inside the tolerance
+            z[i] = i * 5f;
+        }
+
+        PolylineSimplifier.Polyline p = new PolylineSimplifier(0.37f, 50f, 0f).simplify(x, z, n);
+
+        assertTrue(p.size <= 17, "kept " + p.size);
+        assertEquals(0, p.source[0]);
+        assertEquals(n - 1, p.source[p.size - 1]);
+        for (int i = 0; i < p.size - 1; i++) {
+            assertTrue(p.z[i + 1] - p.z[i] <= 50f);
+        }
+    }
+
+    @Test
+    void droppedPointsStayWithinTheTolerance() {
+        // quarter circle, radius 100 m, a point every degree
+        int n = 91;
+        float[] x = new float[n];
+        float[] z = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = 100f - 100f * (float) Math.cos(Math.toRadians(i));
+            z[i] = 100f * (float) Math.sin(Math.toRadians(i));
+        }
+
+        PolylineSimplifier.Polyline p = new PolylineSimplifier(0.37f, 50f, 0f).simplify(x, z, n);
+        assertTrue(p.size < n / 3, "kept " + p.size);
+
+        for (int k = 0; k < p.size - 1; k++) {
+            for (int i = p.source[k] + 1; i < p.source[k + 1]; i++) {
+                PhysicsRoadSegment seg = new PhysicsRoadSegment(
+                        new com.jme3.math.Vector3f(p.x[k], 0f, p.z[k]),
+                        new com.jme3.math.Vector3f(p.x[k + 1], 0f, p.z[k + 1]), 2, 3.7f, null);
+                float t = seg.closestT(x[i], z[i]);
+                assertTrue(seg.distanceSqAt(x[i], z[i], t) <= 0.37f * 0.37f + 1e-4f);
+            }
+        }
+    }
+
+    @Test
+    void resamplingOnlyAddsPointsOnCurves() {
+        // 100 m straight, then a right angle, then 100 m straight
+        float[] x = {0f, 0f, 0f, 100f};
+        float[] z = {0f, 50f, 100f, 100f};
+
+        PolylineSimplifier.Polyline plain = new PolylineSimplifier(0.37f, 500f, 0f).simplify(x, z, 4);
+        PolylineSimplifier.Polyline smooth = new PolylineSimplifier(0.37f, 500f, 10f).simplify(x, z, 4);
+
+        assertEquals(3, plain.size);
+        assertEquals(21, smooth.size); // both spans touch the corner: 10 pieces each
+        assertEquals(100f, smooth.z[10], 1e-4f);
+        assertEquals(0f, smooth.x[10], 1e-4f);
+    }
+}
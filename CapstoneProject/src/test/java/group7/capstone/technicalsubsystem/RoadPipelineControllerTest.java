@@ -0,0 +1,153 @@
+package group7.capstone.technicalsubsystem;
+
+import com.jme3.math.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoadPipelineControllerTest {
+
+    // points every ~11 m heading north
+    private static List<RoadSegment> straightRoad(double startLat, int count) {
+        List<RoadSegment> pts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pts.add(new RoadSegment(startLat + i * 0.0001, -75.0));
+        }
+        return pts;
+    }
+
+    @Test
+    void trimmingKeepsTheRemainingSegmentsInPlace() {
+        RoadPipelineController pipeline = new RoadPipelineController(2, 3.7f);
+        pipeline.runFromGeoPoints(straightRoad(45.0, 101));
+        pipeline.setRetainBehindMeters(100f);
+        RouteHistory history = new RouteHistory();
+        pipeline.setHistory(history);
+
+        List<PhysicsRoadSegment> before = pipeline.getPhysicsSegments();
+        PhysicsRoadSegment current = before.get(80);
+
+        int removed = pipeline.trimBehind(80);
+
+        List<PhysicsRoadSegment> after = pipeline.getPhysicsSegments();
+        assertTrue(removed > 60);
+        assertSame(current, after.get(80 - removed));
+        assertEquals(before.size() - removed, after.size());
+        assertEquals(removed, history.size());
+        assertEquals(45.0, history.getLatitude(0), 1e-9);
+
+        // road behind the car is at least the retain distance
+        float behind = 0f;
+        for (int i = 0; i < 80 - removed; i++) behind += after.get(i).getLength();
+        assertTrue(behind >= 100f);
+        assertEquals(after.get(0).getOriginalSegment(), pipeline.getGeoPoints().get(0));
+    }
+
+    @Test
+    void trimmingNeverLeavesGeoPointsAndSegmentsOutOfStep() {
+        RoadPipelineController pipeline = new RoadPipelineController(2, 3.7f);
+        pipeline.runFromGeoPoints(straightRoad(45.0, 101));
+        pipeline.setRetainBehindMeters(100f);
+        RouteHistory history = new RouteHistory();
+        pipeline.setHistory(history);
+
+        // same road, but not the geo points the segments were built from
+        List<PhysicsRoadSegment> segments = pipeline.getPhysicsSegments();
+        pipeline.getRouteStore().replace(straightRoad(45.0, 101), segments);
+
+        assertEquals(0, pipeline.trimBehind(80));
+        assertEquals(101, pipeline.getGeoPoints().size());
+        assertEquals(segments.size(), pipeline.getPhysicsSegments().size());
+        assertEquals(0, history.size());
+    }
+
+    @Test
+    void trimmingDoesNotMoveTheOrigin() {
+        RoadPipelineController pipeline = new RoadPipelineController(2, 3.7f);
+        pipeline.setRetainBehindMeters(50f);
+        pipeline.runFromGeoPoints(straightRoad(45.0, 51));
+        pipeline.trimBehind(40);
+
+        List<PhysicsRoadSegment> segs = pipeline.getPhysicsSegments();
+        Vector3f lastEnd = segs.get(segs.size() - 1).getEndPoint();
+
+        // 50 steps of 0.0001 deg north from the origin, whatever was trimmed
+        LocalTangentPlane plane = new LocalTangentPlane(45.0, -75.0);
+        assertEquals(plane.toLocal(45.005, -75.0).z, lastEnd.z, 0.001);
+    }
+
+    @Test
+    void rebasingMovesTheRoadIntoTheNewFrame() {
+        RoadPipelineController pipeline = new RoadPipelineController(2, 3.7f);
+        pipeline.runFromGeoPoints(straightRoad(45.0, 301));
+
+        PhysicsRoadSegment far = pipeline.getPhysicsSegments().get(250);
+        double[] geo = pipeline.toGeo(far.getStartPoint());
+        assertEquals(45.025, geo[0], 1e-7);
+        assertEquals(-75.0, geo[1], 1e-7);
+
+        pipeline.rebaseOrigin(geo[0], geo[1]);
+
+        List<PhysicsRoadSegment> rebased = pipeline.getPhysicsSegments();
+        assertEquals(300, rebased.size());
+        assertEquals(0f, rebased.get(250).getStartPoint().z, 0.01f);
+        LocalTangentPlane plane = new LocalTangentPlane(45.025, -75.0);
+        assertEquals(plane.toLocal(45.0, -75.0).z, rebased.get(0).getStartPoint().z, 0.001);
+    }
+
+    @Test
+    void simplifiedRouteKeepsIndicesAcrossRebase() {
+        RoadPipelineController pipeline = new RoadPipelineController(2, 3.7f);
+        pipeline.setSimplifier(PolylineSimplifier.forLaneWidth(3.7f));
+        pipeline.runFromGeoPoints(straightRoad(45.0, 301));
+
+        List<PhysicsRoadSegment> segs = pipeline.getPhysicsSegments();
+        assertTrue(segs.size() <= 300 / 4, "built " + segs.size());
+        assertEquals(301, pipeline.getConvertedPoints());
+        assertEquals(segs.size(), pipeline.getBuiltSegments());
+
+        PhysicsRoadSegment last = segs.get(segs.size() - 1);
+        double[] end = pipeline.toGeo(last.getEndPoint());
+        assertEquals(45.03, end[0], 1e-7);
+
+        pipeline.rebaseOrigin(45.02, -75.0);
+
+        List<PhysicsRoadSegment> rebased = pipeline.getPhysicsSegments();
+        assertEquals(segs.size(), rebased.size());
+        for (int i = 0; i < segs.size(); i++) {
+            assertSame(segs.get(i).getOriginalSegment(), rebased.get(i).getOriginalSegment());
+            assertEquals(segs.get(i).getLength(), rebased.get(i).getLength(), 0.01f);
+        }
+        assertEquals(45.03, pipeline.toGeo(rebased.get(rebased.size() - 1).getEndPoint())[0], 1e-7);
+    }
+
+    @Test
+    void readersSeeImmutableVersionedSnapshots() {
+        RoadPipelineController pipeline = new RoadPipelineController(2, 3.7f);
+        assertSame(RouteSnapshot.EMPTY, pipeline.getSnapshot());
+
+        pipeline.runFromGeoPoints(straightRoad(45.0, 11));
+        RouteSnapshot first = pipeline.getSnapshot();
+        assertEquals(1, first.getVersion());
+        assertEquals(11, first.getGeoPointCount());
+        assertEquals(10, first.getSegmentCount());
+        assertSame(first.getPhysicsSegments(), pipeline.getPhysicsSegments());
+        assertThrows(UnsupportedOperationException.class, () -> first.getPhysicsSegments().clear());
+
+        pipeline.rebaseOrigin(45.0005, -75.0);
+        RouteSnapshot second = pipeline.getSnapshot();
+        assertEquals(2, second.getVersion());
+        assertNotSame(first.getPhysicsSegments(), second.getPhysicsSegments());
+
+        // the old snapshot still holds the old frame
+        assertEquals(0f, first.getPhysicsSegments().get(0).getStartPoint().z, 1e-4f);
+        assertTrue(second.getPhysicsSegments().get(0).getStartPoint().z < -50f);
+
+        pipeline.clearAll();
+        assertEquals(3, pipeline.getSnapshot().getVersion());
+        assertEquals(0, pipeline.getSnapshot().getSegmentCount());
+    }
+}
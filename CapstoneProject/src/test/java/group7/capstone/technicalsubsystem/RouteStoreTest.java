@@ -0,0 +1,55 @@
+package group7.capstone.technicalsubsystem;
+
+import com.jme3.math.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteStoreTest {
+
+    private static PhysicsRoadSegment segment(float z) {
+        return new PhysicsRoadSegment(new Vector3f(0, 0, z), new Vector3f(0, 0, z + 10f), 2, 3.7f, null);
+    }
+
+    @Test
+    void bulkChangesPublishNewSnapshotsAndLeaveOldOnesAlone() {
+        RouteStore store = new RouteStore();
+        RoadSegment a = new RoadSegment(45.0, -75.0);
+        RoadSegment b = new RoadSegment(45.1, -75.0);
+        RoadSegment c = new RoadSegment(45.2, -75.0);
+
+        store.replace(Arrays.asList(a, null, b), List.of(segment(0f)));
+        RouteSnapshot first = store.getSnapshot();
+        assertEquals(List.of(a, b), first.getGeoPoints());
+
+        store.append(List.of(c), List.of(segment(10f)));
+        store.removeFirst(1, 1);
+        RouteSnapshot last = store.getSnapshot();
+
+        assertEquals(3, last.getVersion());
+        assertEquals(List.of(b, c), last.getGeoPoints());
+        assertEquals(1, last.getSegmentCount());
+        assertEquals(10f, last.getPhysicsSegments().get(0).getStartPoint().z);
+        assertEquals(List.of(a, b), first.getGeoPoints());
+    }
+
+    @Test
+    void pipelinesKeepSeparateRoutes() {
+        RoadPipelineController one = new RoadPipelineController(2, 3.7f);
+        RoadPipelineController two = new RoadPipelineController(2, 3.7f);
+
+        List<RoadSegment> pts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) pts.add(new RoadSegment(45.0 + i * 0.0001, -75.0));
+        one.runFromGeoPoints(pts);
+
+        assertEquals(5, one.getRoadDataHolder().size());
+        assertTrue(two.getRoadDataHolder().isEmpty());
+        assertSame(one.getGeoPoints(), one.getRoadDataHolder().getRoadListReadOnly());
+        assertThrows(UnsupportedOperationException.class,
+                () -> one.getRoadDataHolder().getRoadListReadOnly().add(pts.get(0)));
+    }
+}
@@ -0,0 +1,66 @@
+package group7.capstone.technicalsubsystem;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationClockTest {
+
+    private static final long STEP = 10_000_000L; // 10 ms
+
+    private static SimulationClock manualClock(SimulationClock.ManualTicker ticker) {
+        SimulationClock clock = new SimulationClock(0.01f, 4, ticker);
+        clock.setSpinNanos(0L);
+        clock.start();
+        return clock;
+    }
+
+    @Test
+    void waitingGivesOneStepPerFrame() {
+        SimulationClock clock = SimulationClock.headless(1f / 60f);
+        clock.start();
+
+        for (int i = 0; i < 120; i++) {
+            clock.waitForNextStep();
+            assertEquals(1, clock.advance());
+        }
+
+        assertEquals(120, clock.getSteps());
+        assertEquals(2.0, clock.getSimTime(), 1e-6);
+        assertEquals(0, clock.getOverrunFrames());
+        assertEquals(0L, clock.getMaxLateNanos());
+    }
+
+    @Test
+    void leftoverTimeBecomesTheInterpolationAlpha() {
+        SimulationClock.ManualTicker ticker = new SimulationClock.ManualTicker();
+        SimulationClock clock = manualClock(ticker);
+
+        ticker.advance(STEP + STEP / 2);
+        assertEquals(1, clock.advance());
+        assertEquals(0.5f, clock.getAlpha(), 1e-6f);
+        assertEquals(15f, SimulationClock.interpolate(10f, 20f, clock.getAlpha()), 1e-5f);
+
+        // the next step is due half a step later
+        clock.waitForNextStep();
+        assertEquals(1, clock.advance());
+        assertEquals(0f, clock.getAlpha(), 1e-6f);
+    }
+
+    @Test
+    void stallIsCappedByTheCatchUpBudget() {
+        SimulationClock.ManualTicker ticker = new SimulationClock.ManualTicker();
+        SimulationClock clock = manualClock(ticker);
+
+        ticker.advance(STEP * 10 + STEP / 4);
+        assertEquals(4, clock.advance());
+
+        assertEquals(1, clock.getOverrunFrames());
+        assertEquals(6, clock.getDroppedSteps());
+        assertEquals(0.25f, clock.getAlpha(), 1e-6f); // phase is kept
+
+        clock.waitForNextStep();
+        assertEquals(1, clock.advance());
+        assertEquals(5, clock.getSteps());
+    }
+}
@@ -0,0 +1,91 @@
+package group7.capstone.technicalsubsystem;
+
+import com.jme3.math.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tick cost of the rail check, on-road and off-road (full scan), with the reused
+ * caller-owned Result. Run with the GC profiler to check the allocation rate:
+ *
+ *   mvn test-compile
+ *   java -cp target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *        org.openjdk.jmh.Main SoftRailFollowerBenchmark -prof gc
+ *
+ * or just run main(), which adds the GC profiler itself. gc.alloc.rate.norm should be
+ * ~0 B/op for both benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoftRailFollowerBenchmark {
+
+    @Param({"200", "2000"})
+    public int segmentCount;
+
+    private List<PhysicsRoadSegment> route;
+    private SoftRailFollower follower;
+    private final SoftRailFollower.Result result = new SoftRailFollower.Result();
+
+    private float alongX;
+    private float alongZ;
+
+    @Setup
+    public void setUp() {
+        // a gently curving road, 10 m per segment
+        route = new ArrayList<>(segmentCount);
+        Vector3f prev = new Vector3f(0, 0, 0);
+        for (int i = 1; i <= segmentCount; i++) {
+            float heading = i * 0.002f;
+            Vector3f next = prev.add(new Vector3f((float) Math.sin(heading) * 10f, 0, (float) Math.cos(heading) * 10f));
+            route.add(new PhysicsRoadSegment(prev, next, 2, 3.7f, null));
+            prev = next;
+        }
+
+        PhysicsRoadSegment middle = route.get(segmentCount / 2);
+        alongX = middle.pointXAt(0.5f);
+        alongZ = middle.pointZAt(0.5f);
+
+        follower = new SoftRailFollower();
+        follower.check(alongX, 0.5f, alongZ, 50f, route, result);
+    }
+
+    @Benchmark
+    public void onRoadTick(Blackhole bh) {
+        bh.consume(follower.check(alongX, 0.5f, alongZ, 50f, route, result).segmentIndex);
+    }
+
+    @Benchmark
+    public void offRoadFullScan(Blackhole bh) {
+        // 500 m east of the road: every check is a full scan ending in a snap
+        bh.consume(follower.check(alongX + 500f, 0.5f, alongZ, 50f, route, result).distanceMeters);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SoftRailFollowerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,79 @@
+package group7.capstone.technicalsubsystem;
+
+import com.jme3.math.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoftRailFollowerTest {
+
+    // straight road north along x = 0, 30 m segments
+    private static List<PhysicsRoadSegment> straightRoad(int count) {
+        List<PhysicsRoadSegment> route = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            route.add(new PhysicsRoadSegment(new Vector3f(0, 0, i * 30f), new Vector3f(0, 0, (i + 1) * 30f), 2, 3.7f, null));
+        }
+        return route;
+    }
+
+    @Test
+    void resultIsReusedAcrossChecks() {
+        List<PhysicsRoadSegment> route = straightRoad(20);
+        SoftRailFollower follower = new SoftRailFollower();
+        SoftRailFollower.Result result = new SoftRailFollower.Result();
+
+        assertSame(result, follower.check(1f, 0.5f, 75f, 30f, route, result));
+        assertFalse(result.offRoad);
+        assertEquals(2, result.segmentIndex);
+        assertEquals(0.5f, result.tOnSegment, 1e-5f);
+
+        assertSame(result, follower.check(40f, 0.5f, 72f, 30f, route, result));
+        assertTrue(result.offRoad);
+        assertTrue(result.hasSnapPoint());
+        assertEquals(-1, result.segmentIndex);
+        assertEquals(0f, result.snapPoint.x, 1e-5f);
+        assertEquals(72f, result.snapPoint.z, 1e-4f);
+        assertEquals(40f, result.distanceMeters, 1e-4f);
+
+        assertFalse(follower.check(0f, 0.5f, 72f, 30f, route, result).hasSnapPoint());
+    }
+
+    @Test
+    void drivingAlongTheRouteStaysInTheWindow() {
+        List<PhysicsRoadSegment> route = straightRoad(50);
+        SoftRailFollower follower = new SoftRailFollower();
+        SoftRailFollower.Result result = new SoftRailFollower.Result();
+
+        follower.check(0f, 0.5f, 1f, 30f, route, result);
+        for (float z = 1f; z < 1400f; z += 5f) {
+            follower.check(0.5f, 0.5f, z, 30f, route, result);
+            assertFalse(result.offRoad);
+            // the current segment is kept through the corner grace, so it may lag by one
+            int expected = (int) (z / 30f);
+            assertTrue(result.segmentIndex == expected || result.segmentIndex == expected - 1, "z=" + z);
+        }
+        assertEquals(46, result.segmentIndex);
+
+        assertEquals(1, follower.getGridHits()); // only the very first lookup
+        assertEquals(0, follower.getFullScans());
+        assertTrue(follower.getWindowHits() > 40);
+    }
+
+    @Test
+    void jumpAlongTheRouteIsFoundThroughTheGrid() {
+        List<PhysicsRoadSegment> route = straightRoad(50);
+        SoftRailFollower follower = new SoftRailFollower();
+        SoftRailFollower.Result result = new SoftRailFollower.Result();
+
+        follower.check(0f, 0.5f, 15f, 30f, route, result);
+        follower.check(0f, 0.5f, 1215f, 30f, route, result);
+
+        assertFalse(result.offRoad);
+        assertEquals(40, result.segmentIndex);
+        assertEquals(2, follower.getGridHits());
+        assertEquals(0, follower.getFullScans());
+    }
+}
@@ -1,12 +1,17 @@
 package group7.capstone.visuals;
 
+import group7.capstone.visuals.GUI.GuiUpdateBus;
 import group7.capstone.visuals.GUI.HudPanel;
+import group7.capstone.visuals.GUI.HudSnapshot;
 import group7.capstone.visuals.GUI.ImagePanel;
 import org.junit.jupiter.api.Test;
 
 import javax.swing.*;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,6 +48,127 @@ class GuiPanelsTest {
         assertFalse(panel.bufferedImagesEqual(first, different));
     }
 
+    @Test
+    void imagePanelRerendersOnlyWhenTheViewChanges() {
+        ImagePanel panel = new ImagePanel();
+        panel.setSize(400, 300);
+        BufferedImage street = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        street.setRGB(10, 10, 0x00FF00);
+        panel.setImage(street);
+
+        BufferedImage screen = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        paint(panel, screen);
+        paint(panel, screen);
+        assertEquals(1, panel.getFrameRenders());
+
+        // stopped, same heading: nothing to redo
+        panel.zoom(0, 90);
+        paint(panel, screen);
+        assertEquals(1, panel.getFrameRenders());
+
+        panel.zoom(100, 90);
+        paint(panel, screen);
+        assertEquals(2, panel.getFrameRenders());
+    }
+
+    @Test
+    void crossFadeIsComposedOffTheEdtAndEnds() throws Exception {
+        ImagePanel panel = new ImagePanel();
+        panel.setSize(400, 300);
+        BufferedImage screen = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage first = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        BufferedImage second = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        second.getGraphics().fillRect(0, 0, 800, 600);
+
+        panel.setImage(first);
+        paint(panel, screen);
+        panel.setImage(second);
+        assertTrue(panel.isFading());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (panel.isFading() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(panel.isFading());
+        assertTrue(panel.getComposedFadeFrames() > 0);
+        paint(panel, screen);
+        assertEquals(0xFFFFFFFF, screen.getRGB(200, 150));
+    }
+
+    @Test
+    void consecutiveFadesReuseTheSameBuffers() throws Exception {
+        ImagePanel panel = new ImagePanel();
+        panel.setSize(400, 300);
+        BufferedImage screen = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage first = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        panel.setImage(first);
+        paint(panel, screen);
+
+        for (int i = 0; i < 3; i++) {
+            BufferedImage next = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+            next.getGraphics().fillRect(0, 0, 100 * (i + 1), 600);
+            panel.setImage(next);
+            waitForFade(panel);
+        }
+
+        assertTrue(panel.getComposedFadeFrames() > 0);
+        assertEquals(1, panel.getFadeBufferAllocations());
+    }
+
+    @Test
+    void updateBusRendersOnlyTheLatestSnapshot() throws Exception {
+        HudPanel hudPanel = new HudPanel();
+        ImagePanel streetView = new ImagePanel();
+        List<String> footers = new ArrayList<>();
+        GuiUpdateBus bus = new GuiUpdateBus(streetView, hudPanel, footers::add);
+
+        bus.publish(new HudSnapshot(10.0, 45.0, -75.0, 80, "OK", "first"));
+        bus.publish(new HudSnapshot(20.0, 45.5, -75.5, 90, "OK", "second"));
+        bus.publishStatus("LOADING");
+        SwingUtilities.invokeAndWait(bus::flush);
+        SwingUtilities.invokeAndWait(bus::flush);
+
+        assertEquals("20.0 km/h", getLabelText(hudPanel, "speedValue"));
+        assertEquals("90", getLabelText(hudPanel, "headingValue"));
+        assertEquals("LOADING", getLabelText(hudPanel, "statusValue"));
+        // coalesced, and not re-applied when nothing changed
+        assertEquals(List.of("second"), footers);
+    }
+
+    @Test
+    void zoomStateBlendsBetweenTheLastTwoSnapshots() {
+        HudSnapshot previous = new HudSnapshot(10.0, 45.0, -75.0, 350, "OK", "", 0L);
+        HudSnapshot latest = new HudSnapshot(20.0, 45.0, -75.0, 10, "OK", "", 100_000_000L);
+
+        assertEquals(10.0, latest.speedKmhAt(previous, 100_000_000L), 1e-9);
+        assertEquals(15.0, latest.speedKmhAt(previous, 150_000_000L), 1e-9);
+        assertEquals(20.0, latest.speedKmhAt(previous, 400_000_000L), 1e-9);
+        assertEquals(20.0, latest.speedKmhAt(null, 150_000_000L), 1e-9);
+
+        // across north, the short way round
+        assertEquals(0, latest.headingAt(previous, 150_000_000L));
+        assertEquals(10, latest.headingAt(previous, 200_000_000L));
+
+        // a status change is the same state
+        assertEquals(latest.getPublishedNanos(), latest.withStatus("LOADING").getPublishedNanos());
+    }
+
+    private static void waitForFade(ImagePanel panel) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (panel.isFading() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(panel.isFading());
+    }
+
+    private static void paint(JComponent component, BufferedImage target) {
+        Graphics2D g = target.createGraphics();
+        component.paint(g);
+        g.dispose();
+    }
 
     private static String getLabelText(HudPanel panel, String fieldName) throws Exception {
         Field field = HudPanel.class.getDeclaredField(fieldName);
@@ -0,0 +1,58 @@
+package group7.capstone.visuals;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageFingerprintTest {
+
+    @Test
+    void identicalPixelsGiveTheSameFingerprint() {
+        BufferedImage a = gradient();
+        BufferedImage b = gradient();
+
+        assertTrue(ImageFingerprint.of(a).sameContent(ImageFingerprint.of(b)));
+        assertSame(ImageFingerprint.of(a), ImageFingerprint.of(a));
+    }
+
+    @Test
+    void singlePixelChangeIsNewContentButNearDuplicate() {
+        BufferedImage a = gradient();
+        BufferedImage b = gradient();
+        b.setRGB(50, 50, 0xFF0000);
+
+        ImageFingerprint fa = ImageFingerprint.of(a);
+        ImageFingerprint fb = ImageFingerprint.of(b);
+        assertFalse(fa.sameContent(fb));
+        assertTrue(fa.isNearDuplicate(fb));
+    }
+
+    @Test
+    void differentSceneIsNotANearDuplicate() {
+        BufferedImage rising = gradient();
+        BufferedImage falling = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 80; y++) {
+            for (int x = 0; x < 90; x++) {
+                int v = 255 - x * 255 / 89;
+                falling.setRGB(x, y, (v << 16) | (v << 8) | v);
+            }
+        }
+
+        assertFalse(ImageFingerprint.of(rising).isNearDuplicate(ImageFingerprint.of(falling)));
+        assertTrue(ImageFingerprint.of(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB)).isAllBlack());
+    }
+
+    // brightness rising left to right
+    private static BufferedImage gradient() {
+        BufferedImage image = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 80; y++) {
+            for (int x = 0; x < 90; x++) {
+                int v = x * 255 / 89;
+                image.setRGB(x, y, (v << 16) | (v << 8) | v);
+            }
+        }
+        return image;
+    }
+}
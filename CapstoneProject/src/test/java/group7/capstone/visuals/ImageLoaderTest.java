@@ -1,12 +1,24 @@
 package group7.capstone.visuals;
 
+import group7.capstone.APIController.ApiCall;
+import group7.capstone.APIController.ApiException;
 import group7.capstone.APIController.GoogleMapsAPIController;
-import group7.capstone.APIController.StreetViewImage;
+import group7.capstone.APIController.IoExecutor;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -62,27 +74,225 @@ class ImageLoaderTest {
         assertEquals(0, imageLoader.getCacheSize());
     }
 
+    @Test
+    void smallHeadingWobbleHitsSameBucket() {
+        FakeImageApi api = new FakeImageApi();
+        imageLoader = new ImageLoader(api);
+
+        BufferedImage first = imageLoader.loadStreetViewImage(45.4215, -75.6972, 90);
+        BufferedImage second = imageLoader.loadStreetViewImage(45.4215, -75.6972, 91);
+
+        assertSame(first, second);
+        assertEquals(1, api.streetViewCalls);
+    }
+
+    @Test
+    void asyncMissServesNearestCachedImageThenRefined() throws Exception {
+        FakeImageApi api = new FakeImageApi();
+        imageLoader = new ImageLoader(api);
+
+        BufferedImage cached = imageLoader.loadStreetViewImage(45.4215, -75.6972, 90);
+
+        List<BufferedImage> delivered = new ArrayList<>();
+        BufferedImage refined = imageLoader.loadImageAsync(45.42158, -75.6972, 95, delivered::add).get();
+
+        assertEquals(2, delivered.size());
+        assertSame(cached, delivered.get(0));
+        assertSame(refined, delivered.get(1));
+        assertEquals(1, imageLoader.getNearestHits());
+        assertEquals(2, api.streetViewCalls);
+    }
+
+    @Test
+    void repeatedFrameIsNotDeliveredAgain() throws Exception {
+        FakeImageApi api = new FakeImageApi();
+        imageLoader = new ImageLoader(api);
+
+        List<BufferedImage> delivered = new ArrayList<>();
+        imageLoader.loadImageAsync(45.4215, -75.6972, 90, delivered::add).get();
+        imageLoader.loadImageAsync(45.4215, -75.6972, 90, delivered::add).get();
+
+        assertEquals(1, delivered.size());
+        assertEquals(1, imageLoader.getDuplicateFrames());
+    }
+
+    @Test
+    void nearestLookupIgnoresImagesOutsideTolerance() {
+        FakeImageApi api = new FakeImageApi();
+        imageLoader = new ImageLoader(api);
+
+        imageLoader.loadStreetViewImage(45.4215, -75.6972, 90);
+
+        assertNull(imageLoader.findNearestCachedImage(45.4225, -75.6972, 90));
+        assertNull(imageLoader.findNearestCachedImage(45.4215, -75.6972, 180));
+    }
+
+    @Test
+    void concurrentLoadsStayWithinInFlightLimitAndCacheBound() throws Exception {
+        SlowImageApi api = new SlowImageApi();
+        IoExecutor io = new IoExecutor();
+        io.setConcurrencyLimit(IoExecutor.Endpoint.STREET_VIEW, 3);
+        imageLoader = new ImageLoader(api, new ImageCachePolicy(), io);
+        imageLoader.setMaxCacheSize(10);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<BufferedImage>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            double lat = 45.0 + i * 0.01;
+            futures.add(CompletableFuture.supplyAsync(() -> imageLoader.loadStreetViewImage(lat, -75.0, 0), callers));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        callers.shutdown();
+
+        assertTrue(api.maxConcurrent.get() <= 3, "in-flight API calls exceeded the limit");
+        assertEquals(0, imageLoader.getLoadingCount());
+        assertEquals(40, imageLoader.getSuccessfulLoads());
+        assertEquals(10, imageLoader.getCacheSize());
+    }
+
+    @Test
+    void byteBudgetLimitsTheCache() {
+        imageLoader = new ImageLoader(new FakeImageApi());
+        for (int i = 0; i < 5; i++) {
+            imageLoader.loadStreetViewImage(45.0 + i * 0.01, -75.0, 0);
+        }
+        long perImage = imageLoader.getCacheBytes() / 5;
+
+        imageLoader.setMaxCacheBytes(perImage * 2);
+
+        assertEquals(2, imageLoader.getCacheSize());
+        assertTrue(imageLoader.getCacheBytes() <= perImage * 2);
+    }
+
+    @Test
+    void apiFailureServesNearbyCachedImage() {
+        FakeImageApi api = new FakeImageApi();
+        imageLoader = new ImageLoader(api);
+        BufferedImage cached = imageLoader.loadStreetViewImage(45.4215, -75.6972, 90);
+
+        api.failWith = new ApiException(IoExecutor.Endpoint.STREET_VIEW, 503, true, "HTTP 503", null);
+        BufferedImage result = imageLoader.loadStreetViewImage(45.42158, -75.6972, 90);
+
+        assertSame(cached, result);
+        assertEquals(1, imageLoader.getStaleFallbacks());
+        assertEquals(1, imageLoader.getFailedLoads());
+    }
+
+    @Test
+    void mapApiFailureServesNearbyCachedImage() {
+        FakeImageApi api = new FakeImageApi();
+        imageLoader = new ImageLoader(api);
+        BufferedImage cached = imageLoader.loadMapImage(45.4215, -75.6972, 90);
+
+        api.failWith = new ApiException(IoExecutor.Endpoint.STATIC_MAP, 503, true, "HTTP 503", null);
+        BufferedImage result = imageLoader.loadMapImage(45.42158, -75.6972, 90);
+
+        assertSame(cached, result);
+        assertEquals(1, imageLoader.getStaleFallbacks());
+    }
+
+    @Test
+    void newerAsyncLoadSupersedesOlderOne() throws Exception {
+        BlockingImageApi api = new BlockingImageApi();
+        imageLoader = new ImageLoader(api);
+
+        List<BufferedImage> delivered = new ArrayList<>();
+        CompletableFuture<BufferedImage> older = imageLoader.loadImageAsync(45.0, -75.0, 0, delivered::add);
+        assertTrue(api.firstStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<BufferedImage> newer = imageLoader.loadImageAsync(46.0, -75.0, 0, delivered::add);
+        assertTrue(api.firstCall.isCancelled(), "older HTTP call should be cancelled");
+        api.release.countDown();
+
+        assertNull(older.get());
+        assertNotNull(newer.get());
+        assertEquals(1, delivered.size());
+        assertSame(newer.get(), delivered.get(0));
+        assertEquals(1, imageLoader.getSupersededLoads());
+        assertEquals(1, imageLoader.getCacheSize());
+    }
+
+    private static byte[] pngBytes(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static BufferedImage testImage() {
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x00FF00);
+        image.setRGB(1, 1, 0x0000FF);
+        return image;
+    }
+
+    private static class BlockingImageApi extends GoogleMapsAPIController {
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile ApiCall firstCall;
+
+        @Override
+        public byte[] fetchStreetViewBytes(double lat, double lon, int head, ApiCall handle) throws IOException {
+            if (firstCall == null) {
+                firstCall = handle;
+                firstStarted.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return pngBytes(testImage());
+        }
+    }
+
+    private static class SlowImageApi extends GoogleMapsAPIController {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        @Override
+        public byte[] fetchStreetViewBytes(double lat, double lon, int head, ApiCall handle) throws IOException {
+            int now = active.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+
+            return pngBytes(testImage());
+        }
+    }
+
     private static class FakeImageApi extends GoogleMapsAPIController {
         int streetViewCalls = 0;
         boolean returnNullStreetView = false;
+        ApiException failWith;
 
         @Override
-        public StreetViewImage GetStreetViewImage(double lat, double lon, int head) throws IOException {
+        public byte[] fetchStreetViewBytes(double lat, double lon, int head, ApiCall handle) throws IOException {
             streetViewCalls++;
+            if (failWith != null) {
+                throw failWith;
+            }
 
             if (returnNullStreetView) {
                 return null;
             }
 
-            BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
-            image.setRGB(0, 0, 0x00FF00);
-            image.setRGB(1, 1, 0x0000FF);
-            return new StreetViewImage(image, lat, lon, head);
+            // every response is a different frame, like successive panoramas
+            BufferedImage image = testImage();
+            image.setRGB(2, 2, streetViewCalls);
+            return pngBytes(image);
         }
 
         @Override
-        public BufferedImage GetMapImage(double lat, double lon) throws IOException {
-            return new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        public byte[] fetchMapBytes(double lat, double lon, ApiCall handle) throws IOException {
+            if (failWith != null) {
+                throw failWith;
+            }
+            return pngBytes(testImage());
         }
     }
 }
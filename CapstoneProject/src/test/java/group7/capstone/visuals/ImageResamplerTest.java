@@ -0,0 +1,57 @@
+package group7.capstone.visuals;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageResamplerTest {
+
+    @Test
+    void largeImageIsSubsampledWhileDecoding() throws IOException {
+        ImageResampler resampler = new ImageResampler(800, 600);
+        byte[] bytes = encode(new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        BufferedImage decoded = resampler.decode(bytes);
+
+        assertEquals(800, decoded.getWidth());
+        assertEquals(600, decoded.getHeight());
+        assertEquals(1, resampler.getSubsampledDecodes());
+    }
+
+    @Test
+    void imageAlreadyAtTargetSizeIsNotCopied() {
+        ImageResampler resampler = new ImageResampler(800, 600);
+        BufferedImage ready = resampler.createCompatibleImage(800, 600);
+
+        assertSame(ready, resampler.fit(ready));
+        assertNotSame(ready, new ImageResampler(400, 300).fit(ready));
+    }
+
+    @Test
+    void decodeBuffersAreReusedAcrossImagesOfTheSameSize() throws IOException {
+        ImageResampler resampler = new ImageResampler(800, 600);
+        byte[] bytes = encode(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        BufferedImage first = resampler.decode(bytes);
+        BufferedImage second = resampler.decode(bytes);
+
+        assertNotSame(first, second);
+        assertEquals(1, resampler.getPooledBufferReuses());
+    }
+
+    @Test
+    void unreadableBytesDecodeToNull() throws IOException {
+        assertNull(new ImageResampler(800, 600).decode(new byte[]{1, 2, 3}));
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
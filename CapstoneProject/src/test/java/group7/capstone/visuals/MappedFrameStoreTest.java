@@ -0,0 +1,106 @@
+package group7.capstone.visuals;
+
+import group7.capstone.APIController.ApiCall;
+import group7.capstone.APIController.GoogleMapsAPIController;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFrameStoreTest {
+
+    private static byte[] jpeg(int rgb) throws IOException {
+        BufferedImage img = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 600; y++) {
+            for (int x = 0; x < 800; x++) {
+                img.setRGB(x, y, rgb);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static MappedFrameStore smallStore(int segmentBytes) throws IOException {
+        Path file = Files.createTempFile("frames", ".bin");
+        file.toFile().deleteOnExit();
+        return new MappedFrameStore(file, 2L * segmentBytes, segmentBytes, true);
+    }
+
+    @Test
+    void storedFrameDecodesFromTheMapping() throws IOException {
+        byte[] bytes = jpeg(0x3366CC);
+        try (MappedFrameStore store = smallStore(1024 * 1024)) {
+            assertTrue(store.put("k", bytes));
+
+            ByteBuffer view = store.view("k");
+            assertTrue(view.isReadOnly());
+            assertEquals(bytes.length, view.remaining());
+
+            BufferedImage image = store.load("k", new ImageResampler(800, 600));
+            assertNotNull(image);
+            assertEquals(800, image.getWidth());
+            assertNull(store.load("missing", new ImageResampler(800, 600)));
+        }
+    }
+
+    @Test
+    void wrappingReusesTheOldestSegment() throws IOException {
+        byte[] bytes = jpeg(0x808080);
+        int segment = bytes.length * 2 + 1;
+        try (MappedFrameStore store = smallStore(segment)) {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(store.put("k" + i, bytes));
+            }
+
+            // two frames per segment, two segments: k0 and k1 were overwritten by k4
+            assertFalse(store.contains("k0"));
+            assertFalse(store.contains("k1"));
+            assertTrue(store.contains("k4"));
+            assertEquals(3, store.getFrameCount());
+            assertEquals(1, store.getRecycledSegments());
+            assertFalse(store.put("huge", new byte[segment + 1]));
+        }
+    }
+
+    @Test
+    void loaderFallsBackToTheStoreAfterEviction() throws IOException {
+        FixedImageApi api = new FixedImageApi(jpeg(0x4080C0));
+        ImageLoader loader = new ImageLoader(api);
+        try (MappedFrameStore store = smallStore(1024 * 1024)) {
+            loader.setFrameStore(store);
+
+            loader.loadStreetViewImage(45.0, -75.0, 0);
+            loader.clearCache();
+            BufferedImage again = loader.loadStreetViewImage(45.0, -75.0, 0);
+
+            assertNotNull(again);
+            assertEquals(1, api.calls);
+            assertEquals(1, loader.getFrameStoreHits());
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    private static class FixedImageApi extends GoogleMapsAPIController {
+        final byte[] bytes;
+        int calls = 0;
+
+        FixedImageApi(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public byte[] fetchStreetViewBytes(double lat, double lng, int heading, ApiCall call) {
+            calls++;
+            return bytes;
+        }
+    }
+}